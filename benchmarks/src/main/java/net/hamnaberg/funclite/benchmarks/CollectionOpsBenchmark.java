@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite.benchmarks;
+
+import net.hamnaberg.funclite.CollectionOps;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static net.hamnaberg.funclite.benchmarks.Fixtures.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CollectionOpsBenchmark {
+    @Param({"10", "1000", "100000", "10000000"})
+    public int size;
+
+    private List<Integer> ints;
+    private String csv;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ints = randomInts(size);
+        csv = CollectionOps.mkString(ints, ",");
+    }
+
+    @Benchmark
+    public List<Integer> map() {
+        return CollectionOps.map(ints, INCREMENT);
+    }
+
+    @Benchmark
+    public List<Integer> filter() {
+        return CollectionOps.filter(ints, EVEN);
+    }
+
+    @Benchmark
+    public List<Integer> flatMap() {
+        return CollectionOps.flatMap(ints, TO_OPTIONAL);
+    }
+
+    @Benchmark
+    public Map<Integer, Collection<Integer>> groupBy() {
+        return CollectionOps.groupBy(ints, MOD_100);
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> countBy() {
+        return CollectionOps.countBy(ints, MOD_100);
+    }
+
+    @Benchmark
+    public List<Integer> sortBy() {
+        return CollectionOps.sortBy(ints, NEGATE);
+    }
+
+    @Benchmark
+    public List<Integer> parSortBy() {
+        return CollectionOps.parSortBy(ints, NEGATE);
+    }
+
+    @Benchmark
+    public List<Integer> topK() {
+        return CollectionOps.topK(ints, 20, NEGATE);
+    }
+
+    @Benchmark
+    public String mkString() {
+        return CollectionOps.mkString(ints, ",");
+    }
+
+    @Benchmark
+    public void split(Blackhole bh) {
+        for (String s : CollectionOps.split(csv, ",")) {
+            bh.consume(s);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite.benchmarks;
+
+import net.hamnaberg.funclite.Function;
+import net.hamnaberg.funclite.Optional;
+import net.hamnaberg.funclite.Predicate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    static final Function<Integer, Integer> INCREMENT = new Function<Integer, Integer>() {
+        @Override
+        public Integer apply(Integer input) {
+            return input + 1;
+        }
+    };
+
+    static final Function<Integer, Integer> NEGATE = new Function<Integer, Integer>() {
+        @Override
+        public Integer apply(Integer input) {
+            return -input;
+        }
+    };
+
+    static final Predicate<Integer> EVEN = new Predicate<Integer>() {
+        @Override
+        public boolean apply(Integer input) {
+            return (input & 1) == 0;
+        }
+    };
+
+    static final Function<Integer, Integer> MOD_100 = new Function<Integer, Integer>() {
+        @Override
+        public Integer apply(Integer input) {
+            return input % 100;
+        }
+    };
+
+    static final Function<Integer, Iterable<Integer>> TO_OPTIONAL = new Function<Integer, Iterable<Integer>>() {
+        @Override
+        public Iterable<Integer> apply(Integer input) {
+            return Optional.some(input);
+        }
+    };
+
+    static List<Integer> randomInts(int size) {
+        Random random = new Random(42);
+        List<Integer> list = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(random.nextInt(size));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite.benchmarks;
+
+import net.hamnaberg.funclite.FunctionalList;
+import net.hamnaberg.funclite.Optional;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static net.hamnaberg.funclite.benchmarks.Fixtures.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FunctionalListBenchmark {
+    @Param({"10", "1000", "100000", "10000000"})
+    public int size;
+
+    private FunctionalList<Integer> ints;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ints = FunctionalList.create(randomInts(size));
+    }
+
+    @Benchmark
+    public FunctionalList<Integer> eagerChain() {
+        return ints.map(INCREMENT).filter(EVEN).flatMap(TO_OPTIONAL).map(NEGATE).filter(EVEN);
+    }
+
+    @Benchmark
+    public FunctionalList<Integer> viewChain() {
+        return ints.view().map(INCREMENT).filter(EVEN).flatMap(TO_OPTIONAL).map(NEGATE).filter(EVEN).force();
+    }
+
+    @Benchmark
+    public Optional<Integer> eagerHeadOption() {
+        return ints.map(INCREMENT).filter(EVEN).headOption();
+    }
+
+    @Benchmark
+    public Optional<Integer> viewHeadOption() {
+        return ints.view().map(INCREMENT).filter(EVEN).headOption();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite.benchmarks;
+
+import net.hamnaberg.funclite.FunctionalMap;
+import net.hamnaberg.funclite.Predicate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static net.hamnaberg.funclite.benchmarks.Fixtures.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FunctionalMapBenchmark {
+    private static final Predicate<Map.Entry<Integer, Integer>> EVEN_VALUE = new Predicate<Map.Entry<Integer, Integer>>() {
+        @Override
+        public boolean apply(Map.Entry<Integer, Integer> input) {
+            return EVEN.apply(input.getValue());
+        }
+    };
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int size;
+
+    private FunctionalMap<Integer, Integer> map;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Integer> values = randomInts(size);
+        Map<Integer, Integer> m = new HashMap<Integer, Integer>(size * 2);
+        for (int i = 0; i < size; i++) {
+            m.put(i, values.get(i));
+        }
+        map = FunctionalMap.create(m);
+    }
+
+    @Benchmark
+    public FunctionalMap<Integer, Integer> mapValues() {
+        return map.mapValues(INCREMENT);
+    }
+
+    @Benchmark
+    public FunctionalMap<Integer, Integer> filter() {
+        return map.filter(EVEN_VALUE);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite.benchmarks;
+
+import net.hamnaberg.funclite.Function;
+import net.hamnaberg.funclite.Instrumentation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static net.hamnaberg.funclite.benchmarks.Fixtures.*;
+
+/**
+ * The cost of counting every call, timing every call and timing one call in 1024, against the bare function.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class InstrumentationBenchmark {
+    private Function<Integer, Integer> timedEveryCall;
+    private Function<Integer, Integer> sampled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        timedEveryCall = Instrumentation.defaults().withoutJmx().withSampleRate(1).function("bench.every", MOD_100);
+        sampled = Instrumentation.defaults().withoutJmx().withSampleRate(1024).function("bench.sampled", MOD_100);
+    }
+
+    @Benchmark
+    public Integer bare(Counter counter) {
+        return MOD_100.apply(counter.next());
+    }
+
+    @Benchmark
+    public Integer timedEveryCall(Counter counter) {
+        return timedEveryCall.apply(counter.next());
+    }
+
+    @Benchmark
+    public Integer sampled(Counter counter) {
+        return sampled.apply(counter.next());
+    }
+
+    @State(Scope.Thread)
+    public static class Counter {
+        private int value;
+
+        int next() {
+            return value++;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite.benchmarks;
+
+import net.hamnaberg.funclite.CacheSpec;
+import net.hamnaberg.funclite.Function;
+import net.hamnaberg.funclite.Functions;
+import net.hamnaberg.funclite.MemoizedFunction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups with a skewed key distribution against a cache that holds 1% of the key space.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MemoizeBenchmark {
+    private static final int KEY_SPACE = 1 << 20;
+    private static final int KEYS_PER_THREAD = 1 << 16;
+
+    private static final Function<Integer, Integer> HASH = new Function<Integer, Integer>() {
+        @Override
+        public Integer apply(Integer input) {
+            return Integer.toHexString(input).hashCode();
+        }
+    };
+
+    @Param({"lru", "tinyLfu"})
+    public String eviction;
+
+    private MemoizedFunction<Integer, Integer> cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CacheSpec<Integer> spec = "lru".equals(eviction) ? CacheSpec.<Integer>lru() : CacheSpec.<Integer>tinyLfu();
+        cache = Functions.memoize(HASH, spec.withMaximumSize(KEY_SPACE / 100));
+    }
+
+    @TearDown(Level.Trial)
+    public void printStats() {
+        System.out.println(cache.stats());
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        final Integer[] keys = new Integer[KEYS_PER_THREAD];
+        int index;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(42);
+            for (int i = 0; i < keys.length; i++) {
+                // cubing a uniform draw gives a heavily skewed distribution towards small keys
+                double u = random.nextDouble();
+                keys[i] = (int) (u * u * u * KEY_SPACE);
+            }
+        }
+
+        Integer next() {
+            return keys[index++ & (KEYS_PER_THREAD - 1)];
+        }
+    }
+
+    @Benchmark
+    public Integer lookup(Keys keys) {
+        return cache.apply(keys.next());
+    }
+}
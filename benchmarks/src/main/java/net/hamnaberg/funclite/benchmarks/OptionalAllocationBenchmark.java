@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite.benchmarks;
+
+import net.hamnaberg.funclite.IntFunction;
+import net.hamnaberg.funclite.IntPredicate;
+import net.hamnaberg.funclite.Optional;
+import net.hamnaberg.funclite.OptionalInt;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static net.hamnaberg.funclite.benchmarks.Fixtures.*;
+
+/**
+ * Short Optional chains that C2 should scalar replace. With escape analysis on, gc.alloc.rate.norm
+ * is close to 0 B/op; a chain that is not scalar replaced allocates at least 16 B/op.
+ * filter is left out: it returns either the receiver or NONE, and C2 before JDK 22 keeps an allocation
+ * that merges with another object.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptionalAllocationBenchmark {
+    private static final IntFunction INT_INCREMENT = new IntFunction() {
+        @Override
+        public int apply(int input) {
+            return input + 1;
+        }
+    };
+
+    private static final IntPredicate INT_EVEN = new IntPredicate() {
+        @Override
+        public boolean apply(int input) {
+            return input % 2 == 0;
+        }
+    };
+
+    private int counter;
+
+    @Benchmark
+    public Integer mapGetOrElseChain() {
+        return Optional.some(counter++ & 63).map(INCREMENT).map(INCREMENT).getOrElse(0);
+    }
+
+    @Benchmark
+    public boolean existsAndForallOnFreshSome() {
+        Optional<Integer> opt = Optional.fromNullable(counter++ & 63);
+        return opt.exists(EVEN) || opt.forall(EVEN);
+    }
+
+    @Benchmark
+    public int primitiveChainNeverBoxes() {
+        OptionalInt opt = OptionalInt.some(counter++).map(INT_INCREMENT);
+        return opt.exists(INT_EVEN) ? opt.map(INT_INCREMENT).getOrElse(0) : 0;
+    }
+}
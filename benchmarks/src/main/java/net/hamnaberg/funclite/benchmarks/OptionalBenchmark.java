@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite.benchmarks;
+
+import net.hamnaberg.funclite.Function;
+import net.hamnaberg.funclite.Optional;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static net.hamnaberg.funclite.benchmarks.Fixtures.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptionalBenchmark {
+    private static final Function<Integer, Optional<Integer>> HALF_IF_EVEN = new Function<Integer, Optional<Integer>>() {
+        @Override
+        public Optional<Integer> apply(Integer input) {
+            return EVEN.apply(input) ? Optional.some(input / 2) : Optional.<Integer>none();
+        }
+    };
+
+    @Param({"42", "-1"})
+    public int input;
+
+    private Optional<Integer> value;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        value = input < 0 ? Optional.<Integer>none() : Optional.some(input);
+    }
+
+    @Benchmark
+    public Integer mapChain() {
+        return value.map(INCREMENT).map(NEGATE).map(INCREMENT).getOrElse(0);
+    }
+
+    @Benchmark
+    public Integer flatMapChain() {
+        return value.flatMap(HALF_IF_EVEN).flatMap(HALF_IF_EVEN).map(INCREMENT).getOrElse(0);
+    }
+
+    @Benchmark
+    public boolean filterExists() {
+        return value.filter(EVEN).exists(EVEN);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite.benchmarks;
+
+import net.hamnaberg.funclite.Function;
+import net.hamnaberg.funclite.Pipeline;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static net.hamnaberg.funclite.benchmarks.Fixtures.*;
+
+/**
+ * A twelve step transform chain, nested two at a time as the old compose did, against a flat pipeline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+    private static final int STEPS = 12;
+
+    private Function<Integer, Integer> nested;
+    private Function<Integer, Integer> pipeline;
+    private int input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Function<Integer, Integer> chain = INCREMENT;
+        Pipeline<Integer, Integer> flat = Pipeline.of(INCREMENT);
+        for (int i = 1; i < STEPS; i++) {
+            Function<Integer, Integer> step = i % 3 == 0 ? NEGATE : i % 3 == 1 ? MOD_100 : INCREMENT;
+            chain = nest(chain, step);
+            flat = flat.then(step);
+        }
+        nested = chain;
+        pipeline = flat;
+    }
+
+    @Benchmark
+    public Integer nestedCompose() {
+        return nested.apply(input++);
+    }
+
+    @Benchmark
+    public Integer flatPipeline() {
+        return pipeline.apply(input++);
+    }
+
+    private static Function<Integer, Integer> nest(final Function<Integer, Integer> f, final Function<Integer, Integer> f2) {
+        return new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer value) {
+                return f2.apply(f.apply(value));
+            }
+        };
+    }
+}
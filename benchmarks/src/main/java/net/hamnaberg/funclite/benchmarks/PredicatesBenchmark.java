@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite.benchmarks;
+
+import net.hamnaberg.funclite.Predicate;
+import net.hamnaberg.funclite.Predicates;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static net.hamnaberg.funclite.benchmarks.Fixtures.*;
+
+/**
+ * A ten clause filter where the clauses are written in the worst order: the slow ones that rarely reject come first.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredicatesBenchmark {
+    private List<Integer> values;
+    private Predicate<Integer> nested;
+    private Predicate<Integer> flat;
+    private Predicate<Integer> adaptive;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        values = randomInts(1024);
+        List<Predicate<Integer>> clauses = new ArrayList<Predicate<Integer>>();
+        for (int i = 0; i < 9; i++) {
+            clauses.add(slowAtLeast(-i));
+        }
+        clauses.add(EVEN);
+        nested = clauses.get(0);
+        for (int i = 1; i < clauses.size(); i++) {
+            final Predicate<Integer> left = nested;
+            final Predicate<Integer> right = clauses.get(i);
+            nested = new Predicate<Integer>() {
+                @Override
+                public boolean apply(Integer input) {
+                    return left.apply(input) && right.apply(input);
+                }
+            };
+        }
+        flat = Predicates.allOf(clauses);
+        adaptive = Predicates.adaptive(flat);
+    }
+
+    @Benchmark
+    public int nestedAnonymous() {
+        return count(nested);
+    }
+
+    @Benchmark
+    public int allOf() {
+        return count(flat);
+    }
+
+    @Benchmark
+    public int adaptiveAllOf() {
+        return count(adaptive);
+    }
+
+    private int count(Predicate<Integer> predicate) {
+        int count = 0;
+        for (int i = 0; i < values.size(); i++) {
+            if (predicate.apply(values.get(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Predicate<Integer> slowAtLeast(final int limit) {
+        return new Predicate<Integer>() {
+            @Override
+            public boolean apply(Integer input) {
+                int hash = input;
+                for (int i = 0; i < 64; i++) {
+                    hash ^= hash >>> 7;
+                    hash *= 0x9e3779b9;
+                }
+                return hash != 0 && input >= limit;
+            }
+        };
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite.benchmarks;
+
+import net.hamnaberg.funclite.FunctionalList;
+import net.hamnaberg.funclite.IntFunction;
+import net.hamnaberg.funclite.IntFunctionalList;
+import net.hamnaberg.funclite.IntPredicate;
+import net.hamnaberg.funclite.Union;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static net.hamnaberg.funclite.benchmarks.Fixtures.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PrimitiveListBenchmark {
+    private static final IntFunction INT_INCREMENT = new IntFunction() {
+        @Override
+        public int apply(int input) {
+            return input + 1;
+        }
+    };
+
+    private static final IntPredicate INT_EVEN = new IntPredicate() {
+        @Override
+        public boolean apply(int input) {
+            return (input & 1) == 0;
+        }
+    };
+
+    private static final Union<Integer> SUM = new Union<Integer>() {
+        @Override
+        public Integer unite(Integer a, Integer b) {
+            return a + b;
+        }
+    };
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int size;
+
+    private FunctionalList<Integer> boxed;
+    private IntFunctionalList ints;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boxed = FunctionalList.create(randomInts(size));
+        ints = IntFunctionalList.copyOf(boxed);
+    }
+
+    @Benchmark
+    public Integer boxedMapFilterSum() {
+        return boxed.map(INCREMENT).filter(EVEN).reduce(SUM, 0);
+    }
+
+    @Benchmark
+    public long primitiveMapFilterSum() {
+        return ints.map(INT_INCREMENT).filter(INT_EVEN).sum();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a function over a list on an executor with at most maxInFlight calls at a time,
+ * see {@link CollectionOps#mapAsync(List, Function, Executor, int)}.
+ */
+final class Async {
+    private Async() {
+    }
+
+    /**
+     * One virtual thread per task where the runtime has them, otherwise a cached pool of daemon threads.
+     */
+    static Executor defaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    static <A, B> List<B> map(List<A> list, final Function<A, B> f, Executor executor, int maxInFlight) {
+        Preconditions.checkNotNull(f);
+        Preconditions.checkNotNull(executor);
+        Preconditions.checkArgument(maxInFlight > 0, "maxInFlight must be positive, was %s", maxInFlight);
+        final Semaphore permits = new Semaphore(maxInFlight);
+        final Semaphore completions = new Semaphore(0);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<FutureTask<B>> tasks = new ArrayList<FutureTask<B>>(list.size());
+        try {
+            for (final A a : list) {
+                permits.acquire();
+                if (failure.get() != null) {
+                    break;
+                }
+                FutureTask<B> task = new FutureTask<B>(new Callable<B>() {
+                    @Override
+                    public B call() {
+                        return f.apply(a);
+                    }
+                }) {
+                    @Override
+                    protected void setException(Throwable t) {
+                        failure.compareAndSet(null, t);
+                        super.setException(t);
+                    }
+
+                    @Override
+                    protected void done() {
+                        permits.release();
+                        completions.release();
+                    }
+                };
+                tasks.add(task);
+                executor.execute(task);
+            }
+            for (int completed = 0; completed < tasks.size() && failure.get() == null; completed++) {
+                completions.acquire();
+            }
+            if (failure.get() != null) {
+                throw Parallelism.rethrow(failure.get());
+            }
+            List<B> results = new ArrayList<B>(tasks.size());
+            for (FutureTask<B> task : tasks) {
+                results.add(task.get());
+            }
+            return Collections.unmodifiableList(results);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for async tasks", e);
+        } catch (ExecutionException e) {
+            throw Parallelism.rethrow(e.getCause());
+        } finally {
+            for (FutureTask<B> task : tasks) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    private static final class DefaultExecutor {
+        static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (Executor) factory.invoke(null);
+            } catch (Exception e) {
+                return Executors.newCachedThreadPool(new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "funclite-async-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings for {@link Functions#memoize(Function, CacheSpec)}.
+ * Without a maximum the cache is unbounded; without an expiry entries live until they are evicted.
+ */
+public final class CacheSpec<B> {
+    enum Eviction {
+        LRU, TINY_LFU
+    }
+
+    private final Eviction eviction;
+    private final long maximum;
+    private final Function<? super B, Integer> weigher;
+    private final long expireAfterWriteNanos;
+    private final Ticker ticker;
+
+    private CacheSpec(Eviction eviction, long maximum, Function<? super B, Integer> weigher, long expireAfterWriteNanos, Ticker ticker) {
+        this.eviction = eviction;
+        this.maximum = maximum;
+        this.weigher = weigher;
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Evicts the least recently used entry.
+     */
+    public static <B> CacheSpec<B> lru() {
+        return new CacheSpec<B>(Eviction.LRU, -1, null, 0, Ticker.SYSTEM);
+    }
+
+    /**
+     * Window TinyLFU: new entries pass through a small LRU window and are only admitted to the main
+     * segmented LRU if they have been asked for more often than the entry they would replace.
+     * Keeps frequently used entries around when the access pattern contains one-off scans.
+     */
+    public static <B> CacheSpec<B> tinyLfu() {
+        return new CacheSpec<B>(Eviction.TINY_LFU, -1, null, 0, Ticker.SYSTEM);
+    }
+
+    public CacheSpec<B> withMaximumSize(long maximumSize) {
+        Preconditions.checkArgument(maximumSize >= 0, "maximumSize must not be negative, was %s", maximumSize);
+        return new CacheSpec<B>(eviction, maximumSize, null, expireAfterWriteNanos, ticker);
+    }
+
+    /**
+     * Bounds the sum of the weights of the cached values instead of the number of entries.
+     */
+    public CacheSpec<B> withMaximumWeight(long maximumWeight, Function<? super B, Integer> weigher) {
+        Preconditions.checkArgument(maximumWeight >= 0, "maximumWeight must not be negative, was %s", maximumWeight);
+        return new CacheSpec<B>(eviction, maximumWeight, Preconditions.checkNotNull(weigher), expireAfterWriteNanos, ticker);
+    }
+
+    public CacheSpec<B> withExpireAfterWrite(long duration, TimeUnit unit) {
+        Preconditions.checkArgument(duration > 0, "duration must be positive, was %s", duration);
+        return new CacheSpec<B>(eviction, maximum, weigher, unit.toNanos(duration), ticker);
+    }
+
+    CacheSpec<B> withTicker(Ticker ticker) {
+        return new CacheSpec<B>(eviction, maximum, weigher, expireAfterWriteNanos, Preconditions.checkNotNull(ticker));
+    }
+
+    Eviction getEviction() {
+        return eviction;
+    }
+
+    long getMaximum() {
+        return maximum;
+    }
+
+    Function<? super B, Integer> getWeigher() {
+        return weigher;
+    }
+
+    long getExpireAfterWriteNanos() {
+        return expireAfterWriteNanos;
+    }
+
+    Ticker getTicker() {
+        return ticker;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheSpec{eviction=%s, maximum=%s, weighted=%s, expireAfterWriteNanos=%s}", eviction, maximum, weigher != null, expireAfterWriteNanos);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+/**
+ * An immutable snapshot of the counters of a {@link MemoizedFunction}.
+ */
+public final class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    CacheStats(long hitCount, long missCount, long evictionCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    public double getHitRate() {
+        long requests = getRequestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CacheStats that = (CacheStats) o;
+        return hitCount == that.hitCount && missCount == that.missCount && evictionCount == that.evictionCount;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (hitCount ^ (hitCount >>> 32));
+        result = 31 * result + (int) (missCount ^ (missCount >>> 32));
+        result = 31 * result + (int) (evictionCount ^ (evictionCount >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats{hits=%s, misses=%s, evictions=%s}", hitCount, missCount, evictionCount);
+    }
+}
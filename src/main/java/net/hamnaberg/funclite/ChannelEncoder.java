@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * An Appendable that encodes into a channel through fixed char and byte buffers.
+ * One encoder is kept per thread and reused by every write in the same charset.
+ */
+final class ChannelEncoder implements Appendable {
+    private static final ThreadLocal<ChannelEncoder> CACHE = new ThreadLocal<ChannelEncoder>();
+
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars = CharBuffer.allocate(2048);
+    private final ByteBuffer bytes = ByteBuffer.allocate(8192);
+    private WritableByteChannel channel;
+
+    private ChannelEncoder(CharsetEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    static ChannelEncoder forCharset(Charset charset) {
+        ChannelEncoder cached = CACHE.get();
+        if (cached != null && cached.channel == null && cached.encoder.charset().equals(charset)) {
+            return cached;
+        }
+        ChannelEncoder created = new ChannelEncoder(charset.newEncoder());
+        if (cached == null || cached.channel == null) {
+            CACHE.set(created);
+        }
+        return created;
+    }
+
+    /**
+     * Writes what mkString would return into the channel and ends the input, so stateful charsets
+     * write their closing bytes. Unmappable or malformed input, such as a dangling surrogate, is reported.
+     */
+    <V> void write(WritableByteChannel channel, Iterable<V> iterable, String start, String separator, String end) throws IOException {
+        this.channel = channel;
+        encoder.reset();
+        chars.clear();
+        bytes.clear();
+        try {
+            CollectionOps.appendTo(this, iterable, start, separator, end);
+            encode(true);
+            CoderResult result;
+            while ((result = encoder.flush(bytes)).isOverflow()) {
+                drain();
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            drain();
+        }
+        finally {
+            this.channel = null;
+        }
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        while (start < end) {
+            int n = Math.min(chars.remaining(), end - start);
+            chars.append(csq, start, start + n);
+            start += n;
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        chars.put(c);
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        return this;
+    }
+
+    /**
+     * A high surrogate at the end of the chars is kept until its pair arrives or the input ends.
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isUnderflow()) {
+                break;
+            }
+            if (result.isOverflow()) {
+                drain();
+            }
+            else {
+                result.throwException();
+            }
+        }
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
@@ -17,9 +17,21 @@
 package net.hamnaberg.funclite;
 
 
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class CollectionOps {
+    private static final Object NO_VALUE = new Object();
 
     public static <A> List<A> of(A... values) {
         return Arrays.asList(values);
@@ -92,6 +104,368 @@ public class CollectionOps {
         return Collections.unmodifiableList(copy);
     }
 
+    /**
+     * Like map, but lazy: f is applied as the result is iterated, and again on each new iteration.
+     * The lazy operations hold no more than the current element, so they work on unbounded iterators.
+     */
+    public static <A, B> Iterable<B> lazyMap(final Iterable<A> iterable, final Function<A, B> f) {
+        return new Iterable<B>() {
+            @Override
+            public Iterator<B> iterator() {
+                final Iterator<A> it = iterable.iterator();
+                return new Iterator<B>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public B next() {
+                        return f.apply(it.next());
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException("Not supported");
+                    }
+                };
+            }
+        };
+    }
+
+    public static <A> Iterable<A> lazyFilter(final Iterable<A> iterable, final Predicate<A> f) {
+        return new Iterable<A>() {
+            @Override
+            public Iterator<A> iterator() {
+                final Iterator<A> it = iterable.iterator();
+                return new LazyIterator<A>() {
+                    @Override
+                    protected A computeNext() {
+                        while (it.hasNext()) {
+                            A a = it.next();
+                            if (f.apply(a)) {
+                                return a;
+                            }
+                        }
+                        return endOfData();
+                    }
+                };
+            }
+        };
+    }
+
+    public static <A, B> Iterable<B> lazyFlatMap(Iterable<A> iterable, Function<A, Iterable<B>> f) {
+        return lazyFlatten(lazyMap(iterable, f));
+    }
+
+    public static <A> Iterable<A> lazyFlatten(final Iterable<? extends Iterable<A>> iterables) {
+        return new Iterable<A>() {
+            @Override
+            public Iterator<A> iterator() {
+                final Iterator<? extends Iterable<A>> outer = iterables.iterator();
+                return new LazyIterator<A>() {
+                    private Iterator<A> current = Collections.<A>emptyList().iterator();
+
+                    @Override
+                    protected A computeNext() {
+                        while (!current.hasNext()) {
+                            if (!outer.hasNext()) {
+                                return endOfData();
+                            }
+                            current = outer.next().iterator();
+                        }
+                        return current.next();
+                    }
+                };
+            }
+        };
+    }
+
+    public static <A> Iterable<A> concat(Iterable<A> first, Iterable<A> second) {
+        List<Iterable<A>> sources = new ArrayList<Iterable<A>>(2);
+        sources.add(first);
+        sources.add(second);
+        return lazyFlatten(sources);
+    }
+
+    /**
+     * The first n elements. The source is not asked for more than n elements.
+     */
+    public static <A> Iterable<A> take(final Iterable<A> iterable, final int n) {
+        Preconditions.checkArgument(n >= 0, "n must not be negative, was %s", n);
+        return new Iterable<A>() {
+            @Override
+            public Iterator<A> iterator() {
+                final Iterator<A> it = iterable.iterator();
+                return new LazyIterator<A>() {
+                    private int taken = 0;
+
+                    @Override
+                    protected A computeNext() {
+                        if (taken < n && it.hasNext()) {
+                            taken++;
+                            return it.next();
+                        }
+                        return endOfData();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Skips the first n elements when iteration starts.
+     */
+    public static <A> Iterable<A> drop(final Iterable<A> iterable, final int n) {
+        Preconditions.checkArgument(n >= 0, "n must not be negative, was %s", n);
+        return new Iterable<A>() {
+            @Override
+            public Iterator<A> iterator() {
+                final Iterator<A> it = iterable.iterator();
+                return new LazyIterator<A>() {
+                    private boolean dropped = false;
+
+                    @Override
+                    protected A computeNext() {
+                        if (!dropped) {
+                            for (int i = 0; i < n && it.hasNext(); i++) {
+                                it.next();
+                            }
+                            dropped = true;
+                        }
+                        return it.hasNext() ? it.next() : endOfData();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * The elements before the first one failing the predicate. The failing element is read, but not returned.
+     */
+    public static <A> Iterable<A> takeWhile(final Iterable<A> iterable, final Predicate<A> f) {
+        return new Iterable<A>() {
+            @Override
+            public Iterator<A> iterator() {
+                final Iterator<A> it = iterable.iterator();
+                return new LazyIterator<A>() {
+                    @Override
+                    protected A computeNext() {
+                        if (it.hasNext()) {
+                            A a = it.next();
+                            if (f.apply(a)) {
+                                return a;
+                            }
+                        }
+                        return endOfData();
+                    }
+                };
+            }
+        };
+    }
+
+    public static <A> Iterable<A> dropWhile(final Iterable<A> iterable, final Predicate<A> f) {
+        return new Iterable<A>() {
+            @Override
+            public Iterator<A> iterator() {
+                final Iterator<A> it = iterable.iterator();
+                return new LazyIterator<A>() {
+                    private boolean dropping = true;
+
+                    @Override
+                    protected A computeNext() {
+                        while (it.hasNext()) {
+                            A a = it.next();
+                            if (!dropping || !f.apply(a)) {
+                                dropping = false;
+                                return a;
+                            }
+                        }
+                        return endOfData();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Pairs up the elements of both iterables, stopping at the end of the shorter one.
+     */
+    public static <A, B> Iterable<Pair<A, B>> zip(final Iterable<A> left, final Iterable<B> right) {
+        return new Iterable<Pair<A, B>>() {
+            @Override
+            public Iterator<Pair<A, B>> iterator() {
+                final Iterator<A> a = left.iterator();
+                final Iterator<B> b = right.iterator();
+                return new LazyIterator<Pair<A, B>>() {
+                    @Override
+                    protected Pair<A, B> computeNext() {
+                        return a.hasNext() && b.hasNext() ? Pair.of(a.next(), b.next()) : endOfData();
+                    }
+                };
+            }
+        };
+    }
+
+    public static <A> Iterable<Pair<A, Long>> zipWithIndex(final Iterable<A> iterable) {
+        return new Iterable<Pair<A, Long>>() {
+            @Override
+            public Iterator<Pair<A, Long>> iterator() {
+                final Iterator<A> it = iterable.iterator();
+                return new LazyIterator<Pair<A, Long>>() {
+                    private long index = 0;
+
+                    @Override
+                    protected Pair<A, Long> computeNext() {
+                        return it.hasNext() ? Pair.of(it.next(), index++) : endOfData();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Lazy chunks of n elements, the last one holding what is left.
+     */
+    public static <A> Iterable<List<A>> grouped(final Iterable<A> iterable, final int n) {
+        Preconditions.checkArgument(n > 0, "n must be positive, was %s", n);
+        return new Iterable<List<A>>() {
+            @Override
+            public Iterator<List<A>> iterator() {
+                final Iterator<A> it = iterable.iterator();
+                return new LazyIterator<List<A>>() {
+                    @Override
+                    protected List<A> computeNext() {
+                        if (!it.hasNext()) {
+                            return endOfData();
+                        }
+                        List<A> chunk = new ArrayList<A>(Math.min(n, 1024));
+                        while (chunk.size() < n && it.hasNext()) {
+                            chunk.add(it.next());
+                        }
+                        return Collections.unmodifiableList(chunk);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Lazy windows of size elements, each starting step elements after the previous one.
+     * Only the window being filled is held. The last window is shorter when the source ends
+     * before it is full, but only when it holds elements no earlier window held.
+     */
+    public static <A> Iterable<List<A>> sliding(final Iterable<A> iterable, final int size, final int step) {
+        Preconditions.checkArgument(size > 0, "size must be positive, was %s", size);
+        Preconditions.checkArgument(step > 0, "step must be positive, was %s", step);
+        return new Iterable<List<A>>() {
+            @Override
+            public Iterator<List<A>> iterator() {
+                final Iterator<A> it = iterable.iterator();
+                return new LazyIterator<List<A>>() {
+                    private final ArrayDeque<A> window = new ArrayDeque<A>(Math.min(size, 1024));
+                    private boolean first = true;
+
+                    @Override
+                    protected List<A> computeNext() {
+                        if (!first) {
+                            int skip = step - window.size();
+                            for (int i = 0; i < step && !window.isEmpty(); i++) {
+                                window.removeFirst();
+                            }
+                            for (int i = 0; i < skip && it.hasNext(); i++) {
+                                it.next();
+                            }
+                        }
+                        int added = 0;
+                        while (window.size() < size && it.hasNext()) {
+                            window.addLast(it.next());
+                            added++;
+                        }
+                        if (added == 0 && (!first || window.isEmpty())) {
+                            return endOfData();
+                        }
+                        first = false;
+                        return Collections.unmodifiableList(new ArrayList<A>(window));
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Runs the effect once per chunk of batchSize elements, see {@link #grouped(Iterable, int)}.
+     */
+    public static <A> void foreachBatch(Iterable<A> iterable, int batchSize, Effect<List<A>> effect) {
+        for (List<A> batch : grouped(iterable, batchSize)) {
+            effect.exec(batch);
+        }
+    }
+
+    /**
+     * Like foreachBatch, but the next batches are gathered on the executor while the effect runs in the calling thread.
+     * At most queueCapacity gathered batches wait for the effect, so a slow effect holds back the source.
+     * A failure on either side stops both and is rethrown from here.
+     * The executor must run the gatherer in another thread: a direct or caller-runs executor is rejected
+     * with an IllegalArgumentException, since the gatherer would block the calling thread on a full queue.
+     */
+    public static <A> void foreachBatch(final Iterable<A> iterable, final int batchSize, Effect<List<A>> effect, Executor executor, int queueCapacity) {
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be positive, was %s", batchSize);
+        Preconditions.checkArgument(queueCapacity > 0, "queueCapacity must be positive, was %s", queueCapacity);
+        final BlockingQueue<List<A>> queue = new ArrayBlockingQueue<List<A>>(queueCapacity);
+        final List<A> end = Collections.emptyList();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final AtomicBoolean inline = new AtomicBoolean();
+        final Thread caller = Thread.currentThread();
+        FutureTask<Void> gatherer = new FutureTask<Void>(new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+                if (Thread.currentThread() == caller) {
+                    inline.set(true);
+                    return null;
+                }
+                try {
+                    for (List<A> batch : grouped(iterable, batchSize)) {
+                        if (!handOff(queue, batch, stopped)) {
+                            return null;
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+                handOff(queue, end, stopped);
+                return null;
+            }
+        });
+        executor.execute(gatherer);
+        Preconditions.checkArgument(!inline.get(), "The executor ran the gatherer in the calling thread, it needs a thread of its own");
+        try {
+            List<A> batch;
+            while ((batch = queue.take()) != end) {
+                effect.exec(batch);
+            }
+            if (failure.get() != null) {
+                throw Parallelism.rethrow(failure.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the next batch", e);
+        } finally {
+            stopped.set(true);
+            gatherer.cancel(true);
+        }
+    }
+
+    private static <A> boolean handOff(BlockingQueue<A> queue, A value, AtomicBoolean stopped) throws InterruptedException {
+        while (!stopped.get()) {
+            if (queue.offer(value, 100, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static <V> String mkString(Iterable<V> iterable){
         return mkString(iterable, "");
     }
@@ -101,36 +475,63 @@ public class CollectionOps {
     }
 
     public static <V> String mkString(Iterable<V> iterable,String start, String separator, String end){
+        StringBuilder sb = new StringBuilder(start.length() + end.length() + 16);
+        try {
+            appendTo(sb, iterable, start, separator, end);
+        } catch (IOException e) {
+            throw new IllegalStateException("StringBuilder does not throw IOException", e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes what mkString would return straight to the Appendable, e.g. a Writer.
+     * A StringBuilder is presized for Collection inputs, estimated from the length of the first element
+     * but at most to twice its current length, since the first element may be much longer than the rest.
+     */
+    public static <V, T extends Appendable> T appendTo(T out, Iterable<V> iterable, String start, String separator, String end) throws IOException {
         boolean first = true;
-        StringBuilder sb = new StringBuilder();
-        sb.append(start);
+        out.append(start);
         for (V v : iterable) {
             if (v != null) {
-                if(first) {
-                    sb.append(v.toString());
+                if (first) {
+                    int before = out instanceof StringBuilder ? ((StringBuilder) out).length() : 0;
+                    append(out, v);
+                    if (out instanceof StringBuilder && iterable instanceof Collection) {
+                        StringBuilder sb = (StringBuilder) out;
+                        long estimate = sb.length() + (long) (((Collection<?>) iterable).size() - 1) * (sb.length() - before + separator.length()) + end.length();
+                        sb.ensureCapacity((int) Math.min(estimate, 2L * sb.length() + 16));
+                    }
                     first = false;
                 } else {
-                    sb.append(separator);
-                    sb.append(v);
-                }    
-            }            
+                    out.append(separator);
+                    append(out, v);
+                }
+            }
         }
-        sb.append(end);
-        return sb.toString();
+        out.append(end);
+        return out;
     }
 
-    public static Iterable<String> split(String input, String separator) {
-        final String[] split = input.split(separator);
-        return new Iterable<String>() {
-            public Iterator<String> iterator() {
-                return new StringArrayIterator(split);
-            }
+    /**
+     * Encodes what mkString would return straight into the channel. The encoder and its buffers are kept
+     * per thread and reused by later calls with the same charset. The channel is not closed.
+     */
+    public static <V> void writeTo(WritableByteChannel channel, Charset charset, Iterable<V> iterable, String start, String separator, String end) throws IOException {
+        ChannelEncoder.forCharset(charset).write(channel, iterable, start, separator, end);
+    }
 
-            @Override
-            public String toString() {
-                return mkString(this, "[", ",", "]");
-            }
-        };
+    private static void append(Appendable out, Object v) throws IOException {
+        if (v instanceof CharSequence) {
+            out.append((CharSequence) v);
+        }
+        else {
+            out.append(v.toString());
+        }
+    }
+
+    public static Iterable<String> split(String input, String separator) {
+        return Tokenizer.on(separator).trimResults().split(input);
     }
 
     public static <K, V> Map<K, Collection<V>> groupBy(Iterable<V> iterable, Function<V, K> grouper) {
@@ -147,6 +548,43 @@ public class CollectionOps {
         return map;
     }
 
+    /**
+     * Like groupBy, but folds each group into a single accumulator, starting from the seed,
+     * instead of collecting the elements. Keys keep first-seen order.
+     */
+    public static <K, V, R> Map<K, R> groupBy(Iterable<V> iterable, Function<V, K> grouper, R seed, Fold<V, R> fold) {
+        Map<K, R> map = new LinkedHashMap<K, R>();
+        for (V v : iterable) {
+            K key = grouper.apply(v);
+            R acc = map.get(key);
+            if (acc == null && !map.containsKey(key)) {
+                acc = seed;
+            }
+            map.put(key, fold.apply(acc, v));
+        }
+        return map;
+    }
+
+    /**
+     * Like groupBy with a fold, but for inputs with more distinct keys than fit in memory. The first
+     * spilling.getMaxInMemory() keys are folded in memory; elements of later keys are written to partition
+     * files with the codec and folded one partition at a time. The resulting map must fit in memory.
+     * See {@link Spilling}.
+     */
+    public static <K, V, R> Map<K, R> groupBy(Iterable<V> iterable, Function<V, K> grouper, R seed, Fold<V, R> fold, RecordCodec<V> codec, Spilling spilling) {
+        return ExternalGroupBy.fold(iterable, grouper, seed, fold, codec, spilling);
+    }
+
+    /**
+     * Groups inputs larger than the heap, running the effect once per group with all its elements in input order.
+     * Up to spilling.getMaxInMemory() elements are grouped in memory. Beyond that, all elements go to partition
+     * files through the codec and the groups of each partition are built in turn, so at most one partition
+     * is in memory. Groups of one partition come in first-seen order, but partitions are visited one after another.
+     */
+    public static <K, V> void foreachGroup(Iterable<V> iterable, Function<V, K> grouper, RecordCodec<V> codec, Spilling spilling, Effect<Pair<K, List<V>>> effect) {
+        ExternalGroupBy.foreachGroup(iterable, grouper, codec, spilling, effect);
+    }
+
     public static <A> boolean forall(final Iterable<A> iterable, Predicate<A> pred) {
         for (A a : iterable) {
             if (!pred.apply(a)) {
@@ -239,14 +677,66 @@ public class CollectionOps {
     }
 
     public static <A, B> Map<B, Integer> countBy(Iterable<A> iterable, Function<A, B> f) {
-        Map<B, Collection<A>> bCollectionMap = groupBy(iterable, f);
-        Set<B> keySet = bCollectionMap.keySet();
-        HashMap<B, Integer> map = new HashMap();
-        for (B key : keySet) {
-            map.put(key, bCollectionMap.get(key).size());
-        }
+        return groupBy(iterable, f, 0, new Fold<A, Integer>() {
+            @Override
+            public Integer apply(Integer acc, A input) {
+                return acc + 1;
+            }
+        });
+    }
 
-        return map;
+    /**
+     * countBy for inputs with more distinct keys than fit in memory, see {@link #groupBy(Iterable, Function, Object, Fold, RecordCodec, Spilling)}.
+     */
+    public static <A, B> Map<B, Integer> countBy(Iterable<A> iterable, Function<A, B> f, RecordCodec<A> codec, Spilling spilling) {
+        return groupBy(iterable, f, 0, new Fold<A, Integer>() {
+            @Override
+            public Integer apply(Integer acc, A input) {
+                return acc + 1;
+            }
+        }, codec, spilling);
+    }
+
+    public static <A, K> Map<K, Long> sumBy(Iterable<A> iterable, Function<A, K> grouper, final Function<A, Long> value) {
+        return groupBy(iterable, grouper, 0L, new Fold<A, Long>() {
+            @Override
+            public Long apply(Long acc, A input) {
+                return acc + value.apply(input);
+            }
+        });
+    }
+
+    public static <A, K> Map<K, A> minBy(Iterable<A> iterable, Function<A, K> grouper, final Comparator<? super A> comparator) {
+        return reduceBy(iterable, grouper, Functions.<A>identity(), new Union<A>() {
+            @Override
+            public A unite(A a, A b) {
+                return comparator.compare(b, a) < 0 ? b : a;
+            }
+        });
+    }
+
+    public static <A, K> Map<K, A> maxBy(Iterable<A> iterable, Function<A, K> grouper, final Comparator<? super A> comparator) {
+        return reduceBy(iterable, grouper, Functions.<A>identity(), new Union<A>() {
+            @Override
+            public A unite(A a, A b) {
+                return comparator.compare(b, a) > 0 ? b : a;
+            }
+        });
+    }
+
+    /**
+     * Like groupBy, but each group is reduced with the union as it is built: the first value of a key
+     * is mapped, later values are mapped and united with the accumulated one.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V, R> Map<K, R> reduceBy(Iterable<V> iterable, Function<V, K> grouper, final Function<V, R> mapper, final Union<R> union) {
+        return groupBy(iterable, grouper, (R) NO_VALUE, new Fold<V, R>() {
+            @Override
+            public R apply(R acc, V input) {
+                R value = mapper.apply(input);
+                return acc == NO_VALUE ? value : union.unite(acc, value);
+            }
+        });
     }
 
     public static <A> List<A> compact(List<A> args) {
@@ -261,41 +751,339 @@ public class CollectionOps {
         });
     }
 
-    public static <A extends Comparable<A>> List<A> sortBy(List<A> args, final Function<A, A> func) {
-        A[] copyOfArgs = (A[]) args.toArray();
-        Arrays.sort(copyOfArgs, new Comparator<A>() {
+    /**
+     * Stable sort on the key of each element. The key function is called once per element.
+     */
+    public static <A, K extends Comparable<? super K>> List<A> sortBy(List<A> args, Function<A, K> key) {
+        Keyed<K, A>[] decorated = decorate(args, key);
+        Arrays.sort(decorated);
+        return undecorate(decorated);
+    }
+
+    public static <A, K extends Comparable<? super K>> List<A> parSortBy(List<A> args, Function<A, K> key) {
+        return parSortBy(args, key, Parallelism.defaults());
+    }
+
+    /**
+     * Stable sort where the keys are computed, the chunks sorted and the sorted chunks merged in parallel.
+     */
+    public static <A, K extends Comparable<? super K>> List<A> parSortBy(List<A> args, final Function<A, K> key, Parallelism parallelism) {
+        final Keyed<K, A>[] decorated = newKeyedArray(args.size());
+        List<int[]> runs = parallelism.run(args, new Parallelism.Chunk<A, int[]>() {
             @Override
-            public int compare(A pre, A next) {
-                return func.apply(pre).compareTo(func.apply(next));
+            int[] apply(List<A> list, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    A a = list.get(i);
+                    decorated[i] = new Keyed<K, A>(key.apply(a), a, i);
+                }
+                Arrays.sort(decorated, from, to);
+                return new int[]{from, to};
             }
         });
+        Keyed<K, A>[] source = decorated;
+        Keyed<K, A>[] target = runs.size() > 1 ? CollectionOps.<K, A>newKeyedArray(decorated.length) : decorated;
+        while (runs.size() > 1) {
+            final Keyed<K, A>[] from = source;
+            final Keyed<K, A>[] to = target;
+            List<Callable<int[]>> merges = new ArrayList<Callable<int[]>>();
+            for (int i = 0; i < runs.size(); i += 2) {
+                final int[] left = runs.get(i);
+                final int[] right = i + 1 < runs.size() ? runs.get(i + 1) : new int[]{left[1], left[1]};
+                merges.add(new Callable<int[]>() {
+                    @Override
+                    public int[] call() {
+                        merge(from, left[0], right[0], right[1], to);
+                        return new int[]{left[0], right[1]};
+                    }
+                });
+            }
+            runs = parallelism.invokeAll(merges);
+            source = to;
+            target = from;
+        }
+        return undecorate(source);
+    }
+
+    /**
+     * Stable sort for inputs larger than the heap. Runs of spilling.getMaxInMemory() elements are sorted
+     * and written to temporary files with the codec; the result merges the runs lazily, holding one element
+     * per run. Inputs that fit in one run are sorted in memory. Close the result to delete the files.
+     */
+    public static <A, K extends Comparable<? super K>> ExternalSorted<A> sortBy(Iterable<A> iterable, Function<A, K> key, RecordCodec<A> codec, Spilling spilling) {
+        return ExternalSort.sort(iterable, key, Preconditions.checkNotNull(codec), Preconditions.checkNotNull(spilling), null);
+    }
 
-        return of(copyOfArgs);
+    /**
+     * As above, but each run is split into chunks that are sorted and written in parallel.
+     */
+    public static <A, K extends Comparable<? super K>> ExternalSorted<A> sortBy(Iterable<A> iterable, Function<A, K> key, RecordCodec<A> codec, Spilling spilling, Parallelism parallelism) {
+        return ExternalSort.sort(iterable, key, Preconditions.checkNotNull(codec), Preconditions.checkNotNull(spilling), Preconditions.checkNotNull(parallelism));
     }
 
-    private static class StringArrayIterator implements Iterator<String> {
-        private final String[] array;
-        private int index = 0;
+    /**
+     * The k elements with the largest keys, largest first, selected with a heap of size k.
+     * Elements with equal keys keep their input order.
+     */
+    public static <A, K extends Comparable<? super K>> List<A> topK(Iterable<A> iterable, int k, Function<A, K> key) {
+        return select(iterable, k, key, true);
+    }
+
+    /**
+     * The k elements with the smallest keys, smallest first, selected with a heap of size k.
+     * Elements with equal keys keep their input order.
+     */
+    public static <A, K extends Comparable<? super K>> List<A> bottomK(Iterable<A> iterable, int k, Function<A, K> key) {
+        return select(iterable, k, key, false);
+    }
 
-        public StringArrayIterator(String[] array) {
-            this.array = array;
+    private static <A, K extends Comparable<? super K>> List<A> select(Iterable<A> iterable, int k, Function<A, K> key, final boolean largest) {
+        if (k <= 0) {
+            return Collections.emptyList();
         }
+        Comparator<Keyed<K, A>> rank = new Comparator<Keyed<K, A>>() {
+            @Override
+            public int compare(Keyed<K, A> a, Keyed<K, A> b) {
+                int c = largest ? b.key.compareTo(a.key) : a.key.compareTo(b.key);
+                return c != 0 ? c : (a.index < b.index ? -1 : (a.index == b.index ? 0 : 1));
+            }
+        };
+        PriorityQueue<Keyed<K, A>> heap = new PriorityQueue<Keyed<K, A>>(Math.min(k, 1024), Collections.reverseOrder(rank));
+        int index = 0;
+        for (A a : iterable) {
+            K candidate = key.apply(a);
+            if (heap.size() < k) {
+                heap.add(new Keyed<K, A>(candidate, a, index));
+            }
+            else {
+                int c = candidate.compareTo(heap.peek().key);
+                if (largest ? c > 0 : c < 0) {
+                    heap.poll();
+                    heap.add(new Keyed<K, A>(candidate, a, index));
+                }
+            }
+            index++;
+        }
+        Keyed<K, A>[] selected = heap.toArray(CollectionOps.<K, A>newKeyedArray(heap.size()));
+        Arrays.sort(selected, rank);
+        return undecorate(selected);
+    }
 
-        public boolean hasNext() {
-            return isInRange(index);
+    private static <A, K extends Comparable<? super K>> Keyed<K, A>[] decorate(List<A> args, Function<A, K> key) {
+        Keyed<K, A>[] decorated = newKeyedArray(args.size());
+        int i = 0;
+        for (A a : args) {
+            decorated[i] = new Keyed<K, A>(key.apply(a), a, i);
+            i++;
         }
+        return decorated;
+    }
 
-        private boolean isInRange(int idx) {
-            return array.length > 0 && array.length > idx;
+    private static <A> List<A> undecorate(Keyed<?, A>[] decorated) {
+        Object[] values = new Object[decorated.length];
+        for (int i = 0; i < decorated.length; i++) {
+            values[i] = decorated[i].value;
         }
+        @SuppressWarnings("unchecked")
+        List<A> list = (List<A>) of(values);
+        return list;
+    }
+
+    private static <K extends Comparable<? super K>, A> void merge(Keyed<K, A>[] from, int start, int middle, int end, Keyed<K, A>[] to) {
+        int left = start;
+        int right = middle;
+        for (int i = start; i < end; i++) {
+            if (right >= end || (left < middle && from[left].compareTo(from[right]) <= 0)) {
+                to[i] = from[left++];
+            }
+            else {
+                to[i] = from[right++];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K extends Comparable<? super K>, A> Keyed<K, A>[] newKeyedArray(int size) {
+        return (Keyed<K, A>[]) new Keyed<?, ?>[size];
+    }
+
+    public static <A, B> List<B> parMap(List<A> list, Function<A, B> f) {
+        return parMap(list, f, Parallelism.defaults());
+    }
+
+    public static <A, B> List<B> parMap(List<A> list, final Function<A, B> f, Parallelism parallelism) {
+        return join(parallelism.run(list, new Parallelism.Chunk<A, List<B>>() {
+            @Override
+            List<B> apply(List<A> list, int from, int to) {
+                List<B> result = new ArrayList<B>(to - from);
+                for (int i = from; i < to; i++) {
+                    result.add(f.apply(list.get(i)));
+                }
+                return result;
+            }
+        }));
+    }
+
+    public static <A> List<A> parFilter(List<A> list, Predicate<A> f) {
+        return parFilter(list, f, Parallelism.defaults());
+    }
+
+    public static <A> List<A> parFilter(List<A> list, final Predicate<A> f, Parallelism parallelism) {
+        return join(parallelism.run(list, new Parallelism.Chunk<A, List<A>>() {
+            @Override
+            List<A> apply(List<A> list, int from, int to) {
+                List<A> result = newArrayList();
+                for (int i = from; i < to; i++) {
+                    A a = list.get(i);
+                    if (f.apply(a)) {
+                        result.add(a);
+                    }
+                }
+                return result;
+            }
+        }));
+    }
+
+    public static <A, B> List<B> parFlatMap(List<A> list, Function<A, Iterable<B>> f) {
+        return parFlatMap(list, f, Parallelism.defaults());
+    }
+
+    public static <A, B> List<B> parFlatMap(List<A> list, final Function<A, Iterable<B>> f, Parallelism parallelism) {
+        return join(parallelism.run(list, new Parallelism.Chunk<A, List<B>>() {
+            @Override
+            List<B> apply(List<A> list, int from, int to) {
+                List<B> result = newArrayList();
+                for (int i = from; i < to; i++) {
+                    addAll(result, f.apply(list.get(i)));
+                }
+                return result;
+            }
+        }));
+    }
+
+    /**
+     * Like map, with the calls made on the default async executor, see {@link #mapAsync(List, Function, Executor, int)}.
+     */
+    public static <A, B> List<B> mapAsync(List<A> list, Function<A, B> f, int maxInFlight) {
+        return mapAsync(list, f, Async.defaultExecutor(), maxInFlight);
+    }
+
+    /**
+     * Like map, but each call is a task on the executor with at most maxInFlight tasks running or queued at a time.
+     * This is meant for blocking calls such as remote requests. The default executor uses virtual threads where
+     * the runtime has them. Results are in list order. The first failure stops new tasks from being submitted,
+     * cancels the running ones and is rethrown without waiting for the rest.
+     */
+    public static <A, B> List<B> mapAsync(List<A> list, Function<A, B> f, Executor executor, int maxInFlight) {
+        return Async.map(list, f, executor, maxInFlight);
+    }
+
+    public static <A> void foreachAsync(List<A> list, Effect<A> effect, int maxInFlight) {
+        foreachAsync(list, effect, Async.defaultExecutor(), maxInFlight);
+    }
+
+    /**
+     * Runs the effect as in {@link #mapAsync(List, Function, Executor, int)}, returning when all calls are done.
+     */
+    public static <A> void foreachAsync(List<A> list, final Effect<A> effect, Executor executor, int maxInFlight) {
+        Async.map(list, new Function<A, Void>() {
+            @Override
+            public Void apply(A input) {
+                effect.exec(input);
+                return null;
+            }
+        }, executor, maxInFlight);
+    }
+
+    public static <A> A parReduce(List<A> list, Union<A> union, A seed) {
+        return parReduce(list, union, seed, Parallelism.defaults());
+    }
+
+    /**
+     * Reduces chunks in parallel and combines the partial results pairwise, but only
+     * when the union is an {@link AssociativeUnion}; any other union is reduced sequentially.
+     */
+    public static <A> A parReduce(List<A> list, final Union<A> union, A seed, Parallelism parallelism) {
+        if (!(union instanceof AssociativeUnion) || list.isEmpty()) {
+            return reduce(list, union, seed);
+        }
+        List<A> partials = parallelism.run(list, new Parallelism.Chunk<A, A>() {
+            @Override
+            A apply(List<A> list, int from, int to) {
+                A u = list.get(from);
+                for (int i = from + 1; i < to; i++) {
+                    u = union.unite(u, list.get(i));
+                }
+                return u;
+            }
+        });
+        while (partials.size() > 1) {
+            List<A> next = new ArrayList<A>((partials.size() + 1) / 2);
+            for (int i = 0; i < partials.size(); i += 2) {
+                next.add(i + 1 < partials.size() ? union.unite(partials.get(i), partials.get(i + 1)) : partials.get(i));
+            }
+            partials = next;
+        }
+        return union.unite(seed, partials.get(0));
+    }
+
+    public static <K, V> Map<K, Collection<V>> parGroupBy(List<V> list, Function<V, K> grouper) {
+        return parGroupBy(list, grouper, Parallelism.defaults());
+    }
+
+    public static <K, V> Map<K, Collection<V>> parGroupBy(List<V> list, final Function<V, K> grouper, Parallelism parallelism) {
+        List<Map<K, Collection<V>>> partials = parallelism.run(list, new Parallelism.Chunk<V, Map<K, Collection<V>>>() {
+            @Override
+            Map<K, Collection<V>> apply(List<V> list, int from, int to) {
+                return groupBy(list.subList(from, to), grouper);
+            }
+        });
+        if (partials.size() == 1) {
+            return partials.get(0);
+        }
+        Map<K, Collection<V>> map = new LinkedHashMap<K, Collection<V>>();
+        for (Map<K, Collection<V>> partial : partials) {
+            for (Map.Entry<K, Collection<V>> entry : partial.entrySet()) {
+                Collection<V> value = map.get(entry.getKey());
+                if (value == null) {
+                    map.put(entry.getKey(), entry.getValue());
+                }
+                else {
+                    value.addAll(entry.getValue());
+                }
+            }
+        }
+        return map;
+    }
+
+    private static <A> List<A> join(List<List<A>> lists) {
+        if (lists.size() == 1) {
+            return Collections.unmodifiableList(lists.get(0));
+        }
+        int size = 0;
+        for (List<A> list : lists) {
+            size += list.size();
+        }
+        List<A> result = new ArrayList<A>(size);
+        for (List<A> list : lists) {
+            result.addAll(list);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static final class Keyed<K extends Comparable<? super K>, A> implements Comparable<Keyed<K, A>> {
+        final K key;
+        final A value;
+        final int index;
 
-        public String next() {
-            return array[index++].trim();
+        Keyed(K key, A value, int index) {
+            this.key = key;
+            this.value = value;
+            this.index = index;
         }
 
         @Override
-        public void remove() {
-            throw new UnsupportedOperationException("Not allowed");
+        public int compareTo(Keyed<K, A> other) {
+            return key.compareTo(other.key);
         }
     }
 }
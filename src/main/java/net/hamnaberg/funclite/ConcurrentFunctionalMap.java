@@ -0,0 +1,257 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A mutable, thread-safe map with the {@link FunctionalMap} API, backed by a {@link ConcurrentHashMap}.
+ * Reads never lock. {@link #updateWith} and {@link #mergeWith} retry compare-and-set until they win,
+ * {@link #getOrElseUpdate} locks one of a fixed set of stripes so each missing value is computed once.
+ * Iteration, {@link #view()} and the derived maps are weakly consistent: they see some of the concurrent updates.
+ */
+public final class ConcurrentFunctionalMap<K, V> implements ConcurrentMap<K, V> {
+    private final ConcurrentMap<K, V> delegate;
+    private final Object[] stripes;
+
+    private ConcurrentFunctionalMap(ConcurrentMap<K, V> delegate) {
+        this.delegate = delegate;
+        int count = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+        this.stripes = new Object[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    public static <K, V> ConcurrentFunctionalMap<K, V> create() {
+        return new ConcurrentFunctionalMap<K, V>(new ConcurrentHashMap<K, V>());
+    }
+
+    public static <K, V> ConcurrentFunctionalMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        return new ConcurrentFunctionalMap<K, V>(new ConcurrentHashMap<K, V>(map));
+    }
+
+    public V getOrElse(K key, V defaultValue) {
+        V v = delegate.get(key);
+        return v != null ? v : defaultValue;
+    }
+
+    public Optional<V> getOptional(K key) {
+        return Optional.fromNullable(delegate.get(key));
+    }
+
+    /**
+     * Returns the value for the key, computing and storing it first if it is missing.
+     * Concurrent callers for the same key wait for the first one instead of computing it again.
+     */
+    public V getOrElseUpdate(K key, Function<K, V> f) {
+        V v = delegate.get(key);
+        if (v != null) {
+            return v;
+        }
+        synchronized (stripes[spread(key.hashCode()) & (stripes.length - 1)]) {
+            v = delegate.get(key);
+            if (v != null) {
+                return v;
+            }
+            V computed = Preconditions.checkNotNull(f.apply(key));
+            V raced = delegate.putIfAbsent(key, computed);
+            return raced != null ? raced : computed;
+        }
+    }
+
+    /**
+     * Atomically replaces the value for the key with f applied to the current one. None as input means
+     * the key is missing, None as result removes it. f may be called more than once under contention.
+     * @return the new value
+     */
+    public Optional<V> updateWith(K key, Function<Optional<V>, Optional<V>> f) {
+        while (true) {
+            V current = delegate.get(key);
+            Optional<V> next = f.apply(Optional.fromNullable(current));
+            if (current == null) {
+                if (next.isNone() || delegate.putIfAbsent(key, next.get()) == null) {
+                    return next;
+                }
+            }
+            else if (next.isNone()) {
+                if (delegate.remove(key, current)) {
+                    return next;
+                }
+            }
+            else if (delegate.replace(key, current, next.get())) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Atomically stores the value, or the union of the current value and the value if the key is present.
+     * The union may be called more than once under contention.
+     * @return the new value
+     */
+    public V mergeWith(K key, V value, Union<V> union) {
+        Preconditions.checkNotNull(value);
+        while (true) {
+            V current = delegate.putIfAbsent(key, value);
+            if (current == null) {
+                return value;
+            }
+            V merged = Preconditions.checkNotNull(union.unite(current, value));
+            if (delegate.replace(key, current, merged)) {
+                return merged;
+            }
+        }
+    }
+
+    /**
+     * A read-only view that follows later updates.
+     */
+    public FunctionalMap<K, V> view() {
+        return FunctionalMap.create(delegate);
+    }
+
+    /**
+     * An immutable copy of the entries seen while iterating the map once.
+     */
+    public FunctionalMap<K, V> snapshot() {
+        return FunctionalMap.persistentCopyOf(delegate);
+    }
+
+    public <V2> FunctionalMap<K, V2> mapValues(Function<V, V2> f) {
+        return FunctionalMap.create(MapOps.mapValues(delegate, f));
+    }
+
+    public FunctionalMap<K, V> filterKeys(Predicate<K> p) {
+        return FunctionalMap.create(MapOps.filterKeys(delegate, p));
+    }
+
+    public FunctionalMap<K, V> filter(Predicate<Map.Entry<K, V>> p) {
+        return FunctionalMap.create(MapOps.filter(delegate, p));
+    }
+
+    public void foreach(Effect<Entry<K, V>> e) {
+        MapOps.foreach(delegate, e);
+    }
+
+    private static int spread(int hash) {
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        return hash ^ (hash >>> 7) ^ (hash >>> 4);
+    }
+
+
+    /** Map boilerplate **/
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return delegate.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return delegate.containsValue(value);
+    }
+
+    @Override
+    public V get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return delegate.put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return delegate.remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        delegate.putAll(m);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        return delegate.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        return delegate.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        return delegate.replace(key, value);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return delegate.keySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return delegate.values();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return delegate.entrySet();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return delegate.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
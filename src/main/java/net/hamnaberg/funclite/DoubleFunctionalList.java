@@ -0,0 +1,220 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable list of double values backed by a double[], for numeric work without boxing.
+ */
+public final class DoubleFunctionalList {
+    private static final DoubleFunctionalList EMPTY = new DoubleFunctionalList(new double[0], 0);
+
+    private final double[] values;
+    private final int size;
+
+    private DoubleFunctionalList(double[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Index: %s, Size: %s", index, size));
+        }
+        return values[index];
+    }
+
+    public DoubleFunctionalList map(DoubleFunction f) {
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = f.apply(values[i]);
+        }
+        return new DoubleFunctionalList(result, size);
+    }
+
+    public DoubleFunctionalList filter(DoublePredicate pred) {
+        double[] result = new double[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            double value = values[i];
+            if (pred.apply(value)) {
+                result[count++] = value;
+            }
+        }
+        return count == size ? this : new DoubleFunctionalList(result, count);
+    }
+
+    public double reduce(DoubleUnion union, double seed) {
+        double u = seed;
+        for (int i = 0; i < size; i++) {
+            u = union.unite(u, values[i]);
+        }
+        return u;
+    }
+
+    public double sum() {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    public double min() {
+        checkNotEmpty();
+        double min = values[0];
+        for (int i = 1; i < size; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    public double max() {
+        checkNotEmpty();
+        double max = values[0];
+        for (int i = 1; i < size; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    public int count(DoublePredicate pred) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (pred.apply(values[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public OptionalDouble headOption() {
+        return size == 0 ? OptionalDouble.none() : OptionalDouble.some(values[0]);
+    }
+
+    public OptionalDouble find(DoublePredicate pred) {
+        for (int i = 0; i < size; i++) {
+            if (pred.apply(values[i])) {
+                return OptionalDouble.some(values[i]);
+            }
+        }
+        return OptionalDouble.none();
+    }
+
+    public boolean exists(DoublePredicate pred) {
+        for (int i = 0; i < size; i++) {
+            if (pred.apply(values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean forall(DoublePredicate pred) {
+        for (int i = 0; i < size; i++) {
+            if (!pred.apply(values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public double[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    public FunctionalList<Double> boxed() {
+        List<Double> list = new ArrayList<Double>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(values[i]);
+        }
+        return FunctionalList.create(list);
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0) {
+            throw new NoSuchElementException("Empty list");
+        }
+    }
+
+    /** factories **/
+
+    public static DoubleFunctionalList empty() {
+        return EMPTY;
+    }
+
+    public static DoubleFunctionalList of(double... values) {
+        return values.length == 0 ? EMPTY : new DoubleFunctionalList(values.clone(), values.length);
+    }
+
+    public static DoubleFunctionalList copyOf(Collection<Double> values) {
+        double[] array = new double[values.size()];
+        int i = 0;
+        for (Double value : values) {
+            array[i++] = value;
+        }
+        return new DoubleFunctionalList(array, i);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        DoubleFunctionalList other = (DoubleFunctionalList) o;
+        if (size != other.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (Double.doubleToLongBits(values[i]) != Double.doubleToLongBits(other.values[i])) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            long bits = Double.doubleToLongBits(values[i]);
+            result = 31 * result + (int) (bits ^ (bits >>> 32));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size * 4 + 2).append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The external groupBy operations, see {@link Spilling}.
+ */
+final class ExternalGroupBy {
+    /**
+     * Partitions this deep are processed in memory, since what is left is most likely a single large key.
+     */
+    static final int MAX_DEPTH = 3;
+
+    private ExternalGroupBy() {
+    }
+
+    /**
+     * Hybrid hash aggregation: keys seen while there is room keep their accumulator in memory until the end.
+     * Elements of keys first seen after that are spilled, each with its position so first-seen order can be restored.
+     */
+    static <K, V, R> Map<K, R> fold(Iterable<V> iterable, Function<V, K> grouper, R seed, Fold<V, R> fold, RecordCodec<V> codec, Spilling spilling) {
+        List<Accumulator<K, R>> results = new ArrayList<Accumulator<K, R>>();
+        boolean spilled = fold(new Sequence<V>(iterable.iterator()), grouper, seed, fold, codec, spilling, 0, results);
+        if (spilled && spilling.isFirstSeenOrder()) {
+            Collections.sort(results, new Comparator<Accumulator<K, R>>() {
+                @Override
+                public int compare(Accumulator<K, R> a, Accumulator<K, R> b) {
+                    return a.firstSeen < b.firstSeen ? -1 : (a.firstSeen == b.firstSeen ? 0 : 1);
+                }
+            });
+        }
+        Map<K, R> map = new LinkedHashMap<K, R>();
+        for (Accumulator<K, R> acc : results) {
+            map.put(acc.key, acc.value);
+        }
+        return map;
+    }
+
+    private static <K, V, R> boolean fold(Iterator<Sequenced<V>> input, Function<V, K> grouper, R seed, Fold<V, R> fold, RecordCodec<V> codec, Spilling spilling, int depth, List<Accumulator<K, R>> results) {
+        Map<K, Accumulator<K, R>> resident = new LinkedHashMap<K, Accumulator<K, R>>();
+        Partitions<V> partitions = null;
+        try {
+            while (input.hasNext()) {
+                Sequenced<V> element = input.next();
+                K key = grouper.apply(element.value);
+                Accumulator<K, R> acc = resident.get(key);
+                if (acc != null) {
+                    acc.value = fold.apply(acc.value, element.value);
+                }
+                else if (resident.size() < spilling.getMaxInMemory() || depth >= MAX_DEPTH) {
+                    resident.put(key, new Accumulator<K, R>(key, fold.apply(seed, element.value), element.position));
+                }
+                else {
+                    if (partitions == null) {
+                        partitions = new Partitions<V>(codec, spilling, true);
+                    }
+                    partitions.write(partition(key, depth, spilling.getPartitions()), element);
+                }
+            }
+            results.addAll(resident.values());
+            if (partitions == null) {
+                return false;
+            }
+            resident = null;
+            for (int p = 0; p < spilling.getPartitions(); p++) {
+                fold(partitions.read(p), grouper, seed, fold, codec, spilling, depth + 1, results);
+            }
+            return true;
+        }
+        finally {
+            if (partitions != null) {
+                partitions.delete();
+            }
+        }
+    }
+
+    /**
+     * Grace hash grouping: elements are grouped in memory until there are more than maxInMemory of them.
+     * Then everything is moved to partition files and each partition is grouped on its own.
+     */
+    static <K, V> void foreachGroup(Iterable<V> iterable, Function<V, K> grouper, RecordCodec<V> codec, Spilling spilling, Effect<Pair<K, List<V>>> effect) {
+        foreachGroup(new Sequence<V>(iterable.iterator()), grouper, codec, spilling, 0, effect);
+    }
+
+    private static <K, V> void foreachGroup(Iterator<Sequenced<V>> input, Function<V, K> grouper, RecordCodec<V> codec, Spilling spilling, int depth, Effect<Pair<K, List<V>>> effect) {
+        Map<K, List<V>> resident = new LinkedHashMap<K, List<V>>();
+        long held = 0;
+        Partitions<V> partitions = null;
+        try {
+            while (input.hasNext()) {
+                Sequenced<V> element = input.next();
+                K key = grouper.apply(element.value);
+                if (partitions != null) {
+                    partitions.write(partition(key, depth, spilling.getPartitions()), element);
+                    continue;
+                }
+                List<V> group = resident.get(key);
+                if (group == null) {
+                    group = new ArrayList<V>();
+                    resident.put(key, group);
+                }
+                group.add(element.value);
+                if (++held > spilling.getMaxInMemory() && depth < MAX_DEPTH) {
+                    partitions = new Partitions<V>(codec, spilling, false);
+                    for (Map.Entry<K, List<V>> entry : resident.entrySet()) {
+                        int p = partition(entry.getKey(), depth, spilling.getPartitions());
+                        for (V v : entry.getValue()) {
+                            partitions.write(p, new Sequenced<V>(0, v));
+                        }
+                    }
+                    resident.clear();
+                }
+            }
+            if (partitions == null) {
+                for (Map.Entry<K, List<V>> entry : resident.entrySet()) {
+                    effect.exec(Pair.of(entry.getKey(), Collections.unmodifiableList(entry.getValue())));
+                }
+                return;
+            }
+            for (int p = 0; p < spilling.getPartitions(); p++) {
+                foreachGroup(partitions.read(p), grouper, codec, spilling, depth + 1, effect);
+            }
+        }
+        finally {
+            if (partitions != null) {
+                partitions.delete();
+            }
+        }
+    }
+
+    /**
+     * A different mix per depth, so a partition that is split again spreads over all sub partitions.
+     */
+    static int partition(Object key, int depth, int partitions) {
+        int h = (key == null ? 0 : key.hashCode()) * (0x9E3779B9 + 2 * depth);
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return (h & Integer.MAX_VALUE) % partitions;
+    }
+
+    private static final class Accumulator<K, R> {
+        final K key;
+        final long firstSeen;
+        R value;
+
+        Accumulator(K key, R value, long firstSeen) {
+            this.key = key;
+            this.value = value;
+            this.firstSeen = firstSeen;
+        }
+    }
+
+    private static final class Sequenced<V> {
+        final long position;
+        final V value;
+
+        Sequenced(long position, V value) {
+            this.position = position;
+            this.value = value;
+        }
+    }
+
+    private static final class Sequence<V> implements Iterator<Sequenced<V>> {
+        private final Iterator<V> it;
+        private long position = 0;
+
+        Sequence(Iterator<V> it) {
+            this.it = it;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        @Override
+        public Sequenced<V> next() {
+            return new Sequenced<V>(position++, it.next());
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+    }
+
+    /**
+     * One spill file per partition. Records start with the input position when first-seen order is needed.
+     */
+    private static final class Partitions<V> {
+        private final SpillFile<Sequenced<V>>[] files;
+
+        @SuppressWarnings("unchecked")
+        Partitions(RecordCodec<V> codec, Spilling spilling, boolean positions) {
+            this.files = (SpillFile<Sequenced<V>>[]) new SpillFile<?>[spilling.getPartitions()];
+            SequencedCodec<V> sequenced = new SequencedCodec<V>(codec, positions);
+            for (int p = 0; p < files.length; p++) {
+                files[p] = new SpillFile<Sequenced<V>>(sequenced, spilling);
+            }
+            spilling.stats().spilled();
+        }
+
+        void write(int partition, Sequenced<V> element) {
+            files[partition].write(element);
+        }
+
+        Iterator<Sequenced<V>> read(int partition) {
+            return files[partition].read();
+        }
+
+        void delete() {
+            for (SpillFile<Sequenced<V>> file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private static final class SequencedCodec<V> implements RecordCodec<Sequenced<V>> {
+        private final RecordCodec<V> codec;
+        private final boolean positions;
+
+        SequencedCodec(RecordCodec<V> codec, boolean positions) {
+            this.codec = codec;
+            this.positions = positions;
+        }
+
+        @Override
+        public int fixedLength() {
+            return codec.fixedLength() < 0 ? -1 : codec.fixedLength() + (positions ? 8 : 0);
+        }
+
+        @Override
+        public void encode(Sequenced<V> value, DataOutput out) throws IOException {
+            if (positions) {
+                out.writeLong(value.position);
+            }
+            codec.encode(value.value, out);
+        }
+
+        @Override
+        public Sequenced<V> decode(ByteBuffer record) {
+            long position = 0;
+            if (positions) {
+                position = record.getLong();
+            }
+            return new Sequenced<V>(position, codec.decode(record));
+        }
+    }
+}
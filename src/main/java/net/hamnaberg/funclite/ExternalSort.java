@@ -0,0 +1,175 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The external merge sort, see {@link Spilling}.
+ */
+final class ExternalSort {
+    /**
+     * The most runs merged at once; more runs are first merged in groups of this many.
+     */
+    static final int MAX_FAN_IN = 128;
+
+    private ExternalSort() {
+    }
+
+    /**
+     * Reads up to maxInMemory elements at a time, sorts them and writes them out as one run.
+     * With a parallelism each batch is split into chunks that are sorted and written as runs in parallel.
+     */
+    static <A, K extends Comparable<? super K>> ExternalSorted<A> sort(Iterable<A> iterable, final Function<A, K> key, final RecordCodec<A> codec, final Spilling spilling, Parallelism parallelism) {
+        int batchSize = (int) Math.min(spilling.getMaxInMemory(), Integer.MAX_VALUE - 8);
+        List<SpillFile<A>> runs = new ArrayList<SpillFile<A>>();
+        // the runs written by the current merge pass, which only replace runs once the pass is done
+        List<SpillFile<A>> merged = Collections.emptyList();
+        List<A> batch = new ArrayList<A>();
+        try {
+            Iterator<A> it = iterable.iterator();
+            while (it.hasNext()) {
+                batch.add(it.next());
+                if (batch.size() == batchSize && it.hasNext()) {
+                    runs.addAll(writeRuns(batch, key, codec, spilling, parallelism));
+                    batch = new ArrayList<A>();
+                }
+            }
+            if (runs.isEmpty()) {
+                List<A> sorted = parallelism != null ? CollectionOps.parSortBy(batch, key, parallelism) : CollectionOps.sortBy(batch, key);
+                return new ExternalSorted<A>(sorted, runs);
+            }
+            runs.addAll(writeRuns(batch, key, codec, spilling, parallelism));
+            batch = null;
+            while (runs.size() > MAX_FAN_IN) {
+                merged = new ArrayList<SpillFile<A>>();
+                for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+                    List<SpillFile<A>> group = runs.subList(i, Math.min(runs.size(), i + MAX_FAN_IN));
+                    SpillFile<A> run = new SpillFile<A>(codec, spilling);
+                    merged.add(run);
+                    for (Iterator<A> values = merge(group, key); values.hasNext(); ) {
+                        run.write(values.next());
+                    }
+                    spilling.stats().spilled();
+                    delete(group);
+                }
+                runs = merged;
+            }
+        }
+        catch (RuntimeException e) {
+            delete(runs);
+            delete(merged);
+            throw e;
+        }
+        catch (Error e) {
+            delete(runs);
+            delete(merged);
+            throw e;
+        }
+        final List<SpillFile<A>> result = runs;
+        return new ExternalSorted<A>(new Iterable<A>() {
+            @Override
+            public Iterator<A> iterator() {
+                return merge(result, key);
+            }
+        }, result);
+    }
+
+    private static <A, K extends Comparable<? super K>> List<SpillFile<A>> writeRuns(List<A> batch, final Function<A, K> key, final RecordCodec<A> codec, final Spilling spilling, Parallelism parallelism) {
+        Parallelism.Chunk<A, SpillFile<A>> chunk = new Parallelism.Chunk<A, SpillFile<A>>() {
+            @Override
+            SpillFile<A> apply(List<A> list, int from, int to) {
+                SpillFile<A> run = new SpillFile<A>(codec, spilling);
+                for (A a : CollectionOps.sortBy(list.subList(from, to), key)) {
+                    run.write(a);
+                }
+                spilling.stats().spilled();
+                return run;
+            }
+        };
+        if (parallelism != null) {
+            return parallelism.run(batch, chunk);
+        }
+        return Collections.singletonList(chunk.apply(batch, 0, batch.size()));
+    }
+
+    /**
+     * Merges sorted runs with a heap of their heads. Equal keys come from the earliest run first, which keeps the sort stable.
+     */
+    static <A, K extends Comparable<? super K>> Iterator<A> merge(List<SpillFile<A>> runs, Function<A, K> key) {
+        final PriorityQueue<Head<K, A>> heap = new PriorityQueue<Head<K, A>>(Math.max(runs.size(), 1));
+        for (int i = 0; i < runs.size(); i++) {
+            Head<K, A> head = new Head<K, A>(runs.get(i).read(), key, i);
+            if (head.advance()) {
+                heap.add(head);
+            }
+        }
+        return new LazyIterator<A>() {
+            @Override
+            protected A computeNext() {
+                Head<K, A> head = heap.poll();
+                if (head == null) {
+                    return endOfData();
+                }
+                A value = head.value;
+                if (head.advance()) {
+                    heap.add(head);
+                }
+                return value;
+            }
+        };
+    }
+
+    private static <A> void delete(List<SpillFile<A>> runs) {
+        for (SpillFile<A> run : runs) {
+            run.delete();
+        }
+    }
+
+    private static final class Head<K extends Comparable<? super K>, A> implements Comparable<Head<K, A>> {
+        private final Iterator<A> values;
+        private final Function<A, K> key;
+        private final int run;
+        K current;
+        A value;
+
+        Head(Iterator<A> values, Function<A, K> key, int run) {
+            this.values = values;
+            this.key = key;
+            this.run = run;
+        }
+
+        boolean advance() {
+            if (!values.hasNext()) {
+                return false;
+            }
+            value = values.next();
+            current = key.apply(value);
+            return true;
+        }
+
+        @Override
+        public int compareTo(Head<K, A> other) {
+            int c = current.compareTo(other.current);
+            return c != 0 ? c : (run < other.run ? -1 : (run == other.run ? 0 : 1));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The result of an external sort, see {@link CollectionOps#sortBy(Iterable, Function, RecordCodec, Spilling)}.
+ * Each iterator merges the sorted run files as it goes, so the result can be iterated more than once
+ * but is never held in memory. Close it to delete the run files.
+ */
+public final class ExternalSorted<A> implements Iterable<A>, Closeable {
+    private final Iterable<A> source;
+    private final List<SpillFile<A>> runs;
+    private volatile boolean closed;
+
+    /**
+     * The source is the sorted list when runs is empty, else it merges the runs.
+     */
+    ExternalSorted(Iterable<A> source, List<SpillFile<A>> runs) {
+        this.source = source;
+        this.runs = runs;
+    }
+
+    @Override
+    public Iterator<A> iterator() {
+        Preconditions.checkState(!closed, "Already closed");
+        return source.iterator();
+    }
+
+    /**
+     * Whether the input fit in one run and was sorted in memory.
+     */
+    public boolean isInMemory() {
+        return runs.isEmpty();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (SpillFile<A> run : runs) {
+            run.delete();
+        }
+    }
+}
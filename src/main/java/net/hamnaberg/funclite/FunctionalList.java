@@ -16,7 +16,9 @@
 
 package net.hamnaberg.funclite;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Executor;
 
 public final class FunctionalList<A> implements List<A> {
     private final List<A> delegate;
@@ -37,9 +39,47 @@ public final class FunctionalList<A> implements List<A> {
         if (isEmpty()) {
             return this;
         }
+        if (delegate instanceof PersistentVector) {
+            return create(((PersistentVector<A>) delegate).tail());
+        }
         return create(delegate.subList(1, size()));
     }
 
+    /**
+     * The methods below return lists backed by a {@link PersistentVector}.
+     * A list with any other backing is copied into a vector once, and later updates share its structure.
+     */
+    public FunctionalList<A> append(A a) {
+        return create(vector().append(a));
+    }
+
+    public FunctionalList<A> prepend(A a) {
+        return create(vector().prepend(a));
+    }
+
+    public FunctionalList<A> updated(int index, A a) {
+        return create(vector().updated(index, a));
+    }
+
+    public FunctionalList<A> concat(Iterable<A> other) {
+        PersistentVector<A> otherVector = other instanceof FunctionalList ? ((FunctionalList<A>) other).vector() : PersistentVector.copyOf(other);
+        return create(vector().concat(otherVector));
+    }
+
+    /**
+     * A slice of a {@link MappedList} is a view of the same mapping instead.
+     */
+    public FunctionalList<A> slice(int fromIndex, int toIndex) {
+        if (delegate instanceof MappedList) {
+            return create(delegate.subList(fromIndex, toIndex));
+        }
+        return create(vector().slice(fromIndex, toIndex));
+    }
+
+    private PersistentVector<A> vector() {
+        return PersistentVector.copyOf(delegate);
+    }
+
     public <B> FunctionalList<B> map(Function<A, B> f) {
         return create(CollectionOps.map(this, f));
     }
@@ -53,14 +93,45 @@ public final class FunctionalList<A> implements List<A> {
         }
     }
 
+    public <B> FunctionalList<B> mapAsync(Function<A, B> f, int maxInFlight) {
+        return create(CollectionOps.mapAsync(delegate, f, maxInFlight));
+    }
+
+    /**
+     * See {@link CollectionOps#mapAsync(List, Function, Executor, int)}.
+     */
+    public <B> FunctionalList<B> mapAsync(Function<A, B> f, Executor executor, int maxInFlight) {
+        return create(CollectionOps.mapAsync(delegate, f, executor, maxInFlight));
+    }
+
     public FunctionalList<A> filter(Predicate<A> pred) {
         return new FunctionalList<A>(CollectionOps.filter(this, pred));
     }
 
+    public ListView<A> view() {
+        return ListView.of(delegate);
+    }
+
+    public ParallelList<A> par() {
+        return par(Parallelism.defaults());
+    }
+
+    public ParallelList<A> par(Parallelism parallelism) {
+        return new ParallelList<A>(delegate, Preconditions.checkNotNull(parallelism));
+    }
+
     public void foreach(Effect<A> effect) {
         CollectionOps.foreach(this, effect);
     }
 
+    public void foreachAsync(Effect<A> effect, int maxInFlight) {
+        CollectionOps.foreachAsync(delegate, effect, maxInFlight);
+    }
+
+    public void foreachAsync(Effect<A> effect, Executor executor, int maxInFlight) {
+        CollectionOps.foreachAsync(delegate, effect, executor, maxInFlight);
+    }
+
     public boolean forall(Predicate<A> pred) {
         return CollectionOps.forall(this, pred);
     }
@@ -77,6 +148,18 @@ public final class FunctionalList<A> implements List<A> {
         return CollectionOps.reduce(this, u, seed);
     }
 
+    public <K extends Comparable<? super K>> FunctionalList<A> sortBy(Function<A, K> key) {
+        return create(CollectionOps.sortBy(delegate, key));
+    }
+
+    public <K extends Comparable<? super K>> FunctionalList<A> topK(int k, Function<A, K> key) {
+        return create(CollectionOps.topK(delegate, k, key));
+    }
+
+    public <K extends Comparable<? super K>> FunctionalList<A> bottomK(int k, Function<A, K> key) {
+        return create(CollectionOps.bottomK(delegate, k, key));
+    }
+
     public Set<A> toSet() {
         return CollectionOps.setOf(delegate);
     }
@@ -89,10 +172,18 @@ public final class FunctionalList<A> implements List<A> {
         return CollectionOps.mkString(this, "[", sep, "]");
     }
 
+    public <T extends Appendable> T appendTo(T out, String start, String sep, String end) throws IOException {
+        return CollectionOps.appendTo(out, this, start, sep, end);
+    }
+
     public <K> Map<K, Collection<A>> groupBy(Function<A, K> grouper) {
         return CollectionOps.groupBy(this, grouper);
     }
 
+    public <K, R> Map<K, R> groupBy(Function<A, K> grouper, R seed, Fold<A, R> fold) {
+        return CollectionOps.groupBy(this, grouper, seed, fold);
+    }
+
     public String mkString(){
         return CollectionOps.mkString(this);
     }
@@ -107,6 +198,17 @@ public final class FunctionalList<A> implements List<A> {
         return new FunctionalList<A>(Arrays.asList(args));
     }
 
+    public static <A> FunctionalList<A> persistentOf(A... args) {
+        return new FunctionalList<A>(PersistentVector.of(args));
+    }
+
+    public static <A> FunctionalList<A> persistentCopyOf(Iterable<A> list) {
+        if (list instanceof FunctionalList) {
+            return create(((FunctionalList<A>) list).vector());
+        }
+        return new FunctionalList<A>(PersistentVector.copyOf(list));
+    }
+
     public static <A> FunctionalList<A> create(List<A> list) {
         if (list instanceof FunctionalList) {
             return (FunctionalList<A>) list;
@@ -67,6 +67,18 @@ public final class FunctionalMap<K, V> implements Map<K, V> {
         return create(Collections.<K, V>emptyMap());
     }
 
+    public static <K,V> FunctionalMap<K, V> persistentEmpty() {
+        return create(PersistentHashMap.<K, V>empty());
+    }
+
+    public static <K,V> FunctionalMap<K, V> persistentCopyOf(Map<K, V> map) {
+        if (map instanceof FunctionalMap) {
+            FunctionalMap<K, V> fMap = (FunctionalMap<K, V>) map;
+            return create(fMap.persistent(), fMap.defaultValue);
+        }
+        return create(PersistentHashMap.copyOf(map));
+    }
+
 
     public <V2> FunctionalMap<K, V2> mapValues(Function<V, V2> f) {
         return create(MapOps.mapValues(delegate, f));
@@ -84,6 +96,30 @@ public final class FunctionalMap<K, V> implements Map<K, V> {
         MapOps.foreach(delegate, e);
     }
 
+    /**
+     * The methods below return maps backed by a {@link PersistentHashMap}, keeping the default value.
+     * A map with any other backing is copied once, and later updates share its structure.
+     */
+    public FunctionalMap<K, V> updated(K key, V value) {
+        return create(persistent().updated(key, value), defaultValue);
+    }
+
+    public FunctionalMap<K, V> removed(K key) {
+        return create(persistent().removed(key), defaultValue);
+    }
+
+    public FunctionalMap<K, V> merge(Map<? extends K, ? extends V> other) {
+        return create(persistent().merge(other), defaultValue);
+    }
+
+    public FunctionalMap<K, V> merge(Map<? extends K, ? extends V> other, Union<V> union) {
+        return create(persistent().merge(other, union), defaultValue);
+    }
+
+    private PersistentHashMap<K, V> persistent() {
+        return PersistentHashMap.copyOf(delegate);
+    }
+
     private static <K, V> boolean isDefaultOverride(V defaultValue, FunctionalMap<K, V> fMap) {
         return (fMap.defaultValue == null && defaultValue != null) || (fMap.defaultValue != null && defaultValue == null);
     }
@@ -0,0 +1,488 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A push based stream with backpressure: elements flow to a {@link Subscriber} only as fast as it requests them.
+ * Producers that cannot slow down, such as sockets, push into a {@link Source} or through
+ * {@link #buffer(int, Overflow)}, which hold at most a fixed number of elements and drop or fail on overflow.
+ * Null elements are not allowed.
+ */
+public abstract class FunctionalStream<A> {
+    /**
+     * What a full buffer does with a new element.
+     */
+    public enum Overflow {
+        /** drops the new element **/
+        DROP,
+        /** drops the oldest buffered element to make room for the new one **/
+        LATEST,
+        /** fails the stream with an IllegalStateException **/
+        ERROR
+    }
+
+    public abstract void subscribe(Subscriber<? super A> subscriber);
+
+    public final <B> FunctionalStream<B> map(final Function<A, B> f) {
+        final FunctionalStream<A> upstream = this;
+        return new FunctionalStream<B>() {
+            @Override
+            public void subscribe(Subscriber<? super B> subscriber) {
+                upstream.subscribe(new Forwarding<A, B>(subscriber) {
+                    @Override
+                    void next(A value) {
+                        downstream.onNext(Preconditions.checkNotNull(f.apply(value)));
+                    }
+                });
+            }
+        };
+    }
+
+    public final FunctionalStream<A> filter(final Predicate<A> p) {
+        final FunctionalStream<A> upstream = this;
+        return new FunctionalStream<A>() {
+            @Override
+            public void subscribe(Subscriber<? super A> subscriber) {
+                upstream.subscribe(new Forwarding<A, A>(subscriber) {
+                    @Override
+                    void next(A value) {
+                        if (p.apply(value)) {
+                            downstream.onNext(value);
+                        }
+                        else {
+                            request(1);
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Emits the running union of the elements, starting from the seed, which is not emitted.
+     */
+    public final FunctionalStream<A> scan(final A seed, final Union<A> union) {
+        final FunctionalStream<A> upstream = this;
+        return new FunctionalStream<A>() {
+            @Override
+            public void subscribe(Subscriber<? super A> subscriber) {
+                upstream.subscribe(new Forwarding<A, A>(subscriber) {
+                    private A acc = seed;
+
+                    @Override
+                    void next(A value) {
+                        acc = Preconditions.checkNotNull(union.unite(acc, value));
+                        downstream.onNext(acc);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Takes everything this stream pushes and holds up to capacity elements for the subscriber,
+     * handling the rest according to the overflow strategy.
+     */
+    public final FunctionalStream<A> buffer(final int capacity, final Overflow overflow) {
+        final FunctionalStream<A> upstream = this;
+        return new FunctionalStream<A>() {
+            @Override
+            public void subscribe(Subscriber<? super A> subscriber) {
+                final StreamBuffer<A> buffer = new StreamBuffer<A>(capacity, overflow);
+                buffer.subscribe(subscriber);
+                upstream.subscribe(new Subscriber<A>() {
+                    @Override
+                    public void onSubscribe(Subscription subscription) {
+                        buffer.setUpstream(subscription);
+                        subscription.request(Long.MAX_VALUE);
+                    }
+
+                    @Override
+                    public void onNext(A value) {
+                        buffer.offer(value);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        buffer.fail(error);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        buffer.complete();
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Runs the effect on each element, requesting batchSize elements at a time. A failing effect cancels
+     * the stream; that failure and failures of the stream go to onError.
+     * @return the subscription, to cancel the stream early.
+     */
+    public final Subscription foreach(final Effect<A> effect, final Effect<Throwable> onError, final int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be positive, was %s", batchSize);
+        Forwarding<A, A> subscriber = new Forwarding<A, A>(null) {
+            private int consumed = 0;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                upstream = subscription;
+                subscription.request(batchSize);
+            }
+
+            @Override
+            void next(A value) {
+                effect.exec(value);
+                if (++consumed == batchSize) {
+                    consumed = 0;
+                    request(batchSize);
+                }
+            }
+
+            @Override
+            void error(Throwable error) {
+                onError.exec(error);
+            }
+
+            @Override
+            void complete() {
+            }
+        };
+        subscribe(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * A blocking view of the stream. Each iterator subscribes anew and keeps at most bufferSize elements
+     * requested ahead; hasNext blocks until an element arrives or the stream ends, and rethrows a stream failure.
+     */
+    public final Iterable<A> toIterable(final int bufferSize) {
+        Preconditions.checkArgument(bufferSize > 0, "bufferSize must be positive, was %s", bufferSize);
+        return new Iterable<A>() {
+            @Override
+            public Iterator<A> iterator() {
+                BlockingSubscriber<A> subscriber = new BlockingSubscriber<A>(bufferSize);
+                subscribe(subscriber);
+                return subscriber;
+            }
+        };
+    }
+
+    /** factories **/
+
+    /**
+     * A cold stream: each subscriber iterates the iterable on its own, as fast as it requests.
+     */
+    public static <A> FunctionalStream<A> fromIterable(final Iterable<A> iterable) {
+        Preconditions.checkNotNull(iterable);
+        return new FunctionalStream<A>() {
+            @Override
+            public void subscribe(Subscriber<? super A> subscriber) {
+                new IterableSubscription<A>(iterable.iterator(), subscriber).start();
+            }
+        };
+    }
+
+    public static <A> Source<A> source(int capacity, Overflow overflow) {
+        return new Source<A>(capacity, overflow);
+    }
+
+    /**
+     * A hot stream that producers push into from any thread. Up to capacity elements wait for demand,
+     * including elements pushed before anyone subscribed. Allows a single subscriber.
+     */
+    public static final class Source<A> extends FunctionalStream<A> {
+        private final StreamBuffer<A> buffer;
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        private Source(int capacity, Overflow overflow) {
+            this.buffer = new StreamBuffer<A>(capacity, overflow);
+        }
+
+        /**
+         * @return false when the element was dropped or rejected because the buffer is full, or the stream has ended.
+         */
+        public boolean emit(A value) {
+            return buffer.offer(value);
+        }
+
+        public void complete() {
+            buffer.complete();
+        }
+
+        public void fail(Throwable error) {
+            buffer.fail(Preconditions.checkNotNull(error));
+        }
+
+        /**
+         * The number of elements waiting for demand.
+         */
+        public int buffered() {
+            return buffer.size();
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super A> subscriber) {
+            if (subscribed.compareAndSet(false, true)) {
+                buffer.subscribe(subscriber);
+            }
+            else {
+                subscriber.onSubscribe(StreamBuffer.CANCELLED);
+                subscriber.onError(new IllegalStateException("Source allows a single subscriber"));
+            }
+        }
+    }
+
+    /**
+     * Passes demand and cancellation upstream. A failing next cancels upstream and errors downstream.
+     */
+    static abstract class Forwarding<A, B> implements Subscriber<A>, Subscription {
+        final Subscriber<? super B> downstream;
+        volatile Subscription upstream;
+        private boolean done;
+
+        Forwarding(Subscriber<? super B> downstream) {
+            this.downstream = downstream;
+        }
+
+        abstract void next(A value);
+
+        void error(Throwable error) {
+            downstream.onError(error);
+        }
+
+        void complete() {
+            downstream.onComplete();
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            upstream = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public final void onNext(A value) {
+            if (done) {
+                return;
+            }
+            try {
+                next(value);
+            } catch (RuntimeException e) {
+                cancel();
+                onError(e);
+            }
+        }
+
+        @Override
+        public final void onError(Throwable error) {
+            if (!done) {
+                done = true;
+                error(error);
+            }
+        }
+
+        @Override
+        public final void onComplete() {
+            if (!done) {
+                done = true;
+                complete();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            upstream.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            upstream.cancel();
+        }
+    }
+
+    private static final class IterableSubscription<A> implements Subscription {
+        private final Iterator<A> iterator;
+        private final Subscriber<? super A> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private volatile boolean cancelled;
+
+        IterableSubscription(Iterator<A> iterator, Subscriber<? super A> subscriber) {
+            this.iterator = iterator;
+            this.subscriber = subscriber;
+        }
+
+        void start() {
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException(String.format("request must be positive, was %s", n)));
+                return;
+            }
+            long current;
+            do {
+                current = requested.get();
+                if (current == Long.MAX_VALUE) {
+                    return;
+                }
+            } while (!requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+            if (current == 0) {
+                emit(n);
+            }
+        }
+
+        /**
+         * Only the caller that raised the demand from zero emits, so a request from inside onNext only adds to it.
+         */
+        private void emit(long r) {
+            long emitted = 0;
+            try {
+                while (true) {
+                    while (emitted != r) {
+                        if (cancelled) {
+                            return;
+                        }
+                        if (!iterator.hasNext()) {
+                            subscriber.onComplete();
+                            return;
+                        }
+                        subscriber.onNext(Preconditions.checkNotNull(iterator.next()));
+                        emitted++;
+                    }
+                    if (cancelled) {
+                        return;
+                    }
+                    if (!iterator.hasNext()) {
+                        subscriber.onComplete();
+                        return;
+                    }
+                    r = requested.get();
+                    if (r == emitted) {
+                        r = requested.addAndGet(-emitted);
+                        if (r == 0) {
+                            return;
+                        }
+                        emitted = 0;
+                    }
+                }
+            } catch (RuntimeException e) {
+                cancelled = true;
+                subscriber.onError(e);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static final class BlockingSubscriber<A> implements Subscriber<A>, Iterator<A> {
+        private static final Object COMPLETE = new Object();
+
+        private final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+        private final int bufferSize;
+        private final int limit;
+        private volatile Subscription subscription;
+        private int consumed;
+        private Object next;
+
+        BlockingSubscriber(int bufferSize) {
+            this.bufferSize = bufferSize;
+            this.limit = Math.max(1, bufferSize / 2);
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(bufferSize);
+        }
+
+        @Override
+        public void onNext(A value) {
+            queue.add(value);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            queue.add(new Failure(error));
+        }
+
+        @Override
+        public void onComplete() {
+            queue.add(COMPLETE);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    subscription.cancel();
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the stream", e);
+                }
+            }
+            if (next instanceof Failure) {
+                throw Parallelism.rethrow(((Failure) next).error);
+            }
+            return next != COMPLETE;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public A next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            A value = (A) next;
+            next = null;
+            if (++consumed == limit) {
+                consumed = 0;
+                subscription.request(limit);
+            }
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+    }
+
+    private static final class Failure {
+        final Throwable error;
+
+        Failure(Throwable error) {
+            this.error = error;
+        }
+    }
+}
@@ -20,22 +20,46 @@ public final class Functions {
     private Functions() {
     }
 
+    private static final Function<Object, Object> IDENTITY = new Function<Object, Object>() {
+        @Override
+        public Object apply(Object input) {
+            return input;
+        }
+    };
+
+    @SuppressWarnings("unchecked")
     public static <A> Function<A, A> identity() {
-        return new Function<A, A>() {
-            @Override
-            public A apply(A input) {
-                return input;
-            }
-        };
+        return (Function<A, A>) IDENTITY;
     }
 
-    public static <A, B, C> Function<A, C> compose(final Function<A, B> f, final Function<B, C> f2) {
-        return new Function<A, C>() {
-            @Override
-            public C apply(A input) {
-                return f2.apply(f.apply(input));
-            }
-        };
+    /**
+     * Applies f and then f2. The result is a flat {@link Pipeline}, so composing compositions does not nest.
+     */
+    public static <A, B, C> Function<A, C> compose(Function<A, B> f, Function<B, C> f2) {
+        return Pipeline.of(f).then(f2);
+    }
+
+    /**
+     * Caches every result of f without bound. See {@link #memoize(Function, CacheSpec)}.
+     */
+    public static <A, B> MemoizedFunction<A, B> memoize(Function<A, B> f) {
+        return memoize(f, CacheSpec.<B>lru());
+    }
+
+    /**
+     * Caches the results of f as described by the spec. The returned function is thread-safe,
+     * computes each missing key only once even when several threads ask for it at the same time,
+     * and keeps hit, miss and eviction counts. Keys must not be null.
+     */
+    public static <A, B> MemoizedFunction<A, B> memoize(Function<A, B> f, CacheSpec<? super B> spec) {
+        return new MemoizedFunction<A, B>(f, spec);
+    }
+
+    /**
+     * See {@link Instrumentation}.
+     */
+    public static <A, B> Function<A, B> instrumented(String name, Function<A, B> f) {
+        return Instrumentation.defaults().function(name, f);
     }
 
     public static <A> Function<A, String> asString() {
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decorators that count calls, errors and predicate passes, and time a sample of the calls.
+ * Counting costs an uncontended atomic increment; timing costs two System.nanoTime calls, which is why
+ * only about one call in {@link #withSampleRate(int) sampleRate} is timed. Calls are counted in cells picked
+ * by thread id, and a call is timed when the count of its cell reaches a multiple of sampleRate, so threads
+ * that share a cell share its sampling.
+ * Metrics are kept per name and, unless turned off, registered as
+ * {@code net.hamnaberg.funclite:type=Metrics,name=<name>} in the platform MBean server.
+ */
+public final class Instrumentation {
+    public static final String JMX_DOMAIN = "net.hamnaberg.funclite";
+
+    public static final int DEFAULT_SAMPLE_RATE = 64;
+
+    private static final ConcurrentMap<String, Metrics> METRICS = new ConcurrentHashMap<String, Metrics>();
+    private static final Instrumentation DEFAULT = new Instrumentation(DEFAULT_SAMPLE_RATE, true);
+
+    private final int sampleMask;
+    private final boolean jmx;
+
+    private Instrumentation(int sampleRate, boolean jmx) {
+        this.sampleMask = sampleRate - 1;
+        this.jmx = jmx;
+    }
+
+    /**
+     * Times one call in {@link #DEFAULT_SAMPLE_RATE} and registers metrics with JMX.
+     */
+    public static Instrumentation defaults() {
+        return DEFAULT;
+    }
+
+    /**
+     * Times one call in sampleRate, rounded up to a power of two. A rate of 1 times every call.
+     */
+    public Instrumentation withSampleRate(int sampleRate) {
+        Preconditions.checkArgument(sampleRate > 0, "sampleRate must be positive, was %s", sampleRate);
+        int rate = sampleRate == 1 ? 1 : Integer.highestOneBit(sampleRate - 1) << 1;
+        return new Instrumentation(rate, jmx);
+    }
+
+    public Instrumentation withoutJmx() {
+        return new Instrumentation(sampleMask + 1, false);
+    }
+
+    public int getSampleRate() {
+        return sampleMask + 1;
+    }
+
+    /**
+     * The metrics for the name, created on first use.
+     */
+    public Metrics metrics(String name) {
+        Metrics metrics = METRICS.get(Preconditions.checkNotNull(name));
+        if (metrics == null) {
+            Metrics created = new Metrics(name);
+            metrics = METRICS.putIfAbsent(name, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        if (jmx) {
+            register(metrics);
+        }
+        return metrics;
+    }
+
+    public <A, B> Function<A, B> function(String name, Function<A, B> f) {
+        return new InstrumentedFunction<A, B>(metrics(name), sampleMask, Preconditions.checkNotNull(f));
+    }
+
+    public <A> Predicate<A> predicate(String name, Predicate<A> p) {
+        return new InstrumentedPredicate<A>(metrics(name), sampleMask, Preconditions.checkNotNull(p));
+    }
+
+    public <A> Effect<A> effect(String name, Effect<A> e) {
+        return new InstrumentedEffect<A>(metrics(name), sampleMask, Preconditions.checkNotNull(e));
+    }
+
+    public <A> Union<A> union(String name, Union<A> u) {
+        return new InstrumentedUnion<A>(metrics(name), sampleMask, Preconditions.checkNotNull(u));
+    }
+
+    /**
+     * Drops the metrics for the name and unregisters them from JMX, for names that are created dynamically.
+     * Decorators created before keep counting into the dropped metrics; the name starts from zero on next use.
+     * @return whether there were metrics for the name
+     */
+    public static boolean unregister(String name) {
+        Metrics metrics = METRICS.remove(Preconditions.checkNotNull(name));
+        ObjectName objectName = objectName(name);
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        }
+        catch (InstanceNotFoundException e) {
+            // never registered, or registered without JMX
+        }
+        catch (JMException e) {
+            throw new IllegalStateException(String.format("Could not unregister %s", objectName), e);
+        }
+        return metrics != null;
+    }
+
+    public static ObjectName objectName(String name) {
+        try {
+            return new ObjectName(JMX_DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name));
+        }
+        catch (JMException e) {
+            throw new IllegalArgumentException(String.format("Invalid metrics name %s", name), e);
+        }
+    }
+
+    private static void register(Metrics metrics) {
+        ObjectName objectName = objectName(metrics.getName());
+        try {
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+            }
+        }
+        catch (InstanceAlreadyExistsException e) {
+            // registered by a concurrent caller
+        }
+        catch (JMException e) {
+            throw new IllegalStateException(String.format("Could not register %s", objectName), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Instrumentation{sampleRate=%s, jmx=%s}", getSampleRate(), jmx);
+    }
+
+    /**
+     * The counting and timing shared by the decorators. Two arguments cover every decorated type.
+     */
+    private abstract static class Instrumented<A, R> {
+        private final Metrics metrics;
+        private final int sampleMask;
+
+        Instrumented(Metrics metrics, int sampleMask) {
+            this.metrics = metrics;
+            this.sampleMask = sampleMask;
+        }
+
+        abstract R call(Metrics metrics, A a, A b);
+
+        final R invoke(A a, A b) {
+            boolean sampled = (metrics.invoked() & sampleMask) == 0;
+            long start = sampled ? System.nanoTime() : 0;
+            try {
+                return call(metrics, a, b);
+            }
+            catch (RuntimeException e) {
+                metrics.failed();
+                throw e;
+            }
+            catch (Error e) {
+                metrics.failed();
+                throw e;
+            }
+            finally {
+                if (sampled) {
+                    metrics.sampled(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    private static final class InstrumentedFunction<A, B> extends Instrumented<A, B> implements Function<A, B> {
+        private final Function<A, B> f;
+
+        InstrumentedFunction(Metrics metrics, int sampleMask, Function<A, B> f) {
+            super(metrics, sampleMask);
+            this.f = f;
+        }
+
+        @Override
+        public B apply(A input) {
+            return invoke(input, null);
+        }
+
+        @Override
+        B call(Metrics metrics, A a, A b) {
+            return f.apply(a);
+        }
+    }
+
+    private static final class InstrumentedPredicate<A> extends Instrumented<A, Boolean> implements Predicate<A> {
+        private final Predicate<A> p;
+
+        InstrumentedPredicate(Metrics metrics, int sampleMask, Predicate<A> p) {
+            super(metrics, sampleMask);
+            this.p = p;
+        }
+
+        @Override
+        public boolean apply(A input) {
+            return invoke(input, null);
+        }
+
+        @Override
+        Boolean call(Metrics metrics, A a, A b) {
+            boolean result = p.apply(a);
+            if (result) {
+                metrics.passed();
+            }
+            return result;
+        }
+    }
+
+    private static final class InstrumentedEffect<A> extends Instrumented<A, Void> implements Effect<A> {
+        private final Effect<A> e;
+
+        InstrumentedEffect(Metrics metrics, int sampleMask, Effect<A> e) {
+            super(metrics, sampleMask);
+            this.e = e;
+        }
+
+        @Override
+        public void exec(A input) {
+            invoke(input, null);
+        }
+
+        @Override
+        Void call(Metrics metrics, A a, A b) {
+            e.exec(a);
+            return null;
+        }
+    }
+
+    private static final class InstrumentedUnion<A> extends Instrumented<A, A> implements Union<A> {
+        private final Union<A> u;
+
+        InstrumentedUnion(Metrics metrics, int sampleMask, Union<A> u) {
+            super(metrics, sampleMask);
+            this.u = u;
+        }
+
+        @Override
+        public A unite(A a, A b) {
+            return invoke(a, b);
+        }
+
+        @Override
+        A call(Metrics metrics, A a, A b) {
+            return u.unite(a, b);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable list of int values backed by a int[], for numeric work without boxing.
+ */
+public final class IntFunctionalList {
+    private static final IntFunctionalList EMPTY = new IntFunctionalList(new int[0], 0);
+
+    private final int[] values;
+    private final int size;
+
+    private IntFunctionalList(int[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Index: %s, Size: %s", index, size));
+        }
+        return values[index];
+    }
+
+    public IntFunctionalList map(IntFunction f) {
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = f.apply(values[i]);
+        }
+        return new IntFunctionalList(result, size);
+    }
+
+    public IntFunctionalList filter(IntPredicate pred) {
+        int[] result = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int value = values[i];
+            if (pred.apply(value)) {
+                result[count++] = value;
+            }
+        }
+        return count == size ? this : new IntFunctionalList(result, count);
+    }
+
+    public int reduce(IntUnion union, int seed) {
+        int u = seed;
+        for (int i = 0; i < size; i++) {
+            u = union.unite(u, values[i]);
+        }
+        return u;
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    public int min() {
+        checkNotEmpty();
+        int min = values[0];
+        for (int i = 1; i < size; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    public int max() {
+        checkNotEmpty();
+        int max = values[0];
+        for (int i = 1; i < size; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    public int count(IntPredicate pred) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (pred.apply(values[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public OptionalInt headOption() {
+        return size == 0 ? OptionalInt.none() : OptionalInt.some(values[0]);
+    }
+
+    public OptionalInt find(IntPredicate pred) {
+        for (int i = 0; i < size; i++) {
+            if (pred.apply(values[i])) {
+                return OptionalInt.some(values[i]);
+            }
+        }
+        return OptionalInt.none();
+    }
+
+    public boolean exists(IntPredicate pred) {
+        for (int i = 0; i < size; i++) {
+            if (pred.apply(values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean forall(IntPredicate pred) {
+        for (int i = 0; i < size; i++) {
+            if (!pred.apply(values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    public FunctionalList<Integer> boxed() {
+        List<Integer> list = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(values[i]);
+        }
+        return FunctionalList.create(list);
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0) {
+            throw new NoSuchElementException("Empty list");
+        }
+    }
+
+    /** factories **/
+
+    public static IntFunctionalList empty() {
+        return EMPTY;
+    }
+
+    public static IntFunctionalList of(int... values) {
+        return values.length == 0 ? EMPTY : new IntFunctionalList(values.clone(), values.length);
+    }
+
+    public static IntFunctionalList copyOf(Collection<Integer> values) {
+        int[] array = new int[values.size()];
+        int i = 0;
+        for (Integer value : values) {
+            array[i++] = value;
+        }
+        return new IntFunctionalList(array, i);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        IntFunctionalList other = (IntFunctionalList) o;
+        if (size != other.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (values[i] != other.values[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + values[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size * 4 + 2).append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
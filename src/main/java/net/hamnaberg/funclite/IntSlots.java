@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed number of zero initialised int slots, on the heap or in direct or mapped memory.
+ */
+abstract class IntSlots {
+    abstract int get(long index);
+
+    abstract void set(long index, int value);
+
+    static IntSlots allocate(long count, Storage storage) {
+        if (storage.getKind() == Storage.Kind.HEAP) {
+            return new ArraySlots(Slots.heapCount(count));
+        }
+        return new BufferSlots(Slots.pages(count * 4, storage));
+    }
+
+    private static final class ArraySlots extends IntSlots {
+        private final int[] slots;
+
+        ArraySlots(int count) {
+            slots = new int[count];
+        }
+
+        @Override
+        int get(long index) {
+            return slots[(int) index];
+        }
+
+        @Override
+        void set(long index, int value) {
+            slots[(int) index] = value;
+        }
+    }
+
+    private static final class BufferSlots extends IntSlots {
+        private final ByteBuffer[] pages;
+
+        BufferSlots(ByteBuffer[] pages) {
+            this.pages = pages;
+        }
+
+        @Override
+        int get(long index) {
+            long offset = index << 2;
+            return pages[(int) (offset >>> Slots.PAGE_SHIFT)].getInt((int) (offset & Slots.PAGE_MASK));
+        }
+
+        @Override
+        void set(long index, int value) {
+            long offset = index << 2;
+            pages[(int) (offset >>> Slots.PAGE_SHIFT)].putInt((int) (offset & Slots.PAGE_MASK), value);
+        }
+    }
+}
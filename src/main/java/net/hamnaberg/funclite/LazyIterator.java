@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator that computes one element ahead, on demand. computeNext returns endOfData() when done.
+ */
+abstract class LazyIterator<A> implements Iterator<A> {
+    private static final int NOT_READY = 0;
+    private static final int READY = 1;
+    private static final int DONE = 2;
+
+    private int state = NOT_READY;
+    private A next;
+
+    protected abstract A computeNext();
+
+    protected final A endOfData() {
+        state = DONE;
+        return null;
+    }
+
+    @Override
+    public final boolean hasNext() {
+        if (state == NOT_READY) {
+            A value = computeNext();
+            if (state != DONE) {
+                next = value;
+                state = READY;
+            }
+        }
+        return state == READY;
+    }
+
+    @Override
+    public final A next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        A value = next;
+        next = null;
+        state = NOT_READY;
+        return value;
+    }
+
+    @Override
+    public final void remove() {
+        throw new UnsupportedOperationException("Not supported");
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.*;
+
+/**
+ * A lazy view over a list. map, filter and flatMap only record the step;
+ * the whole chain runs as one pass over the source when a terminal operation is called.
+ * find, exists, forall and headOption stop as soon as the answer is known.
+ */
+public final class ListView<A> {
+    private static final Stage[] NO_STAGES = new Stage[0];
+
+    private final List<?> source;
+    private final Stage[] stages;
+
+    private ListView(List<?> source, Stage[] stages) {
+        this.source = source;
+        this.stages = stages;
+    }
+
+    static <A> ListView<A> of(List<A> source) {
+        return new ListView<A>(Preconditions.checkNotNull(source), NO_STAGES);
+    }
+
+    public <B> ListView<B> map(final Function<A, B> f) {
+        return then(new Stage(true) {
+            @SuppressWarnings("unchecked")
+            @Override
+            Sink wrap(final Sink down) {
+                return new Sink() {
+                    @Override
+                    boolean accept(Object value) {
+                        return down.accept(f.apply((A) value));
+                    }
+                };
+            }
+        });
+    }
+
+    public ListView<A> filter(final Predicate<A> pred) {
+        return then(new Stage(false) {
+            @SuppressWarnings("unchecked")
+            @Override
+            Sink wrap(final Sink down) {
+                return new Sink() {
+                    @Override
+                    boolean accept(Object value) {
+                        return !pred.apply((A) value) || down.accept(value);
+                    }
+                };
+            }
+        });
+    }
+
+    public <B> ListView<B> flatMap(final Function<A, Iterable<B>> f) {
+        return then(new Stage(false) {
+            @SuppressWarnings("unchecked")
+            @Override
+            Sink wrap(final Sink down) {
+                return new Sink() {
+                    @Override
+                    boolean accept(Object value) {
+                        for (B b : f.apply((A) value)) {
+                            if (!down.accept(b)) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                };
+            }
+        });
+    }
+
+    public FunctionalList<A> force() {
+        final List<A> list = sizePreserving() ? new ArrayList<A>(source.size()) : CollectionOps.<A>newArrayList();
+        run(new Sink() {
+            @SuppressWarnings("unchecked")
+            @Override
+            boolean accept(Object value) {
+                list.add((A) value);
+                return true;
+            }
+        });
+        return FunctionalList.create(Collections.unmodifiableList(list));
+    }
+
+    public Optional<A> find(final Predicate<A> pred) {
+        final Object[] found = new Object[1];
+        run(new Sink() {
+            @SuppressWarnings("unchecked")
+            @Override
+            boolean accept(Object value) {
+                if (pred.apply((A) value)) {
+                    found[0] = value;
+                    return false;
+                }
+                return true;
+            }
+        });
+        return Optional.fromNullable(this.<A>cast(found[0]));
+    }
+
+    public Optional<A> headOption() {
+        return find(Predicates.<A>alwaysTrue());
+    }
+
+    public boolean exists(final Predicate<A> pred) {
+        final boolean[] result = new boolean[1];
+        run(new Sink() {
+            @SuppressWarnings("unchecked")
+            @Override
+            boolean accept(Object value) {
+                result[0] = pred.apply((A) value);
+                return !result[0];
+            }
+        });
+        return result[0];
+    }
+
+    public boolean forall(final Predicate<A> pred) {
+        return !exists(Predicates.not(pred));
+    }
+
+    public void foreach(final Effect<A> effect) {
+        run(new Sink() {
+            @SuppressWarnings("unchecked")
+            @Override
+            boolean accept(Object value) {
+                effect.exec((A) value);
+                return true;
+            }
+        });
+    }
+
+    public A reduce(final Union<A> union, A seed) {
+        final Object[] acc = {seed};
+        run(new Sink() {
+            @SuppressWarnings("unchecked")
+            @Override
+            boolean accept(Object value) {
+                acc[0] = union.unite((A) acc[0], (A) value);
+                return true;
+            }
+        });
+        return cast(acc[0]);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ListView{source=%s, stages=%d}", source.size(), stages.length);
+    }
+
+    private <B> ListView<B> then(Stage stage) {
+        Stage[] next = Arrays.copyOf(stages, stages.length + 1);
+        next[stages.length] = stage;
+        return new ListView<B>(source, next);
+    }
+
+    private boolean sizePreserving() {
+        for (Stage stage : stages) {
+            if (!stage.sizePreserving) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void run(Sink terminal) {
+        Sink sink = terminal;
+        for (int i = stages.length - 1; i >= 0; i--) {
+            sink = stages[i].wrap(sink);
+        }
+        if (source instanceof RandomAccess) {
+            for (int i = 0, size = source.size(); i < size; i++) {
+                if (!sink.accept(source.get(i))) {
+                    return;
+                }
+            }
+        }
+        else {
+            for (Object value : source) {
+                if (!sink.accept(value)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <B> B cast(Object value) {
+        return (B) value;
+    }
+
+    private static abstract class Stage {
+        final boolean sizePreserving;
+
+        Stage(boolean sizePreserving) {
+            this.sizePreserving = sizePreserving;
+        }
+
+        abstract Sink wrap(Sink down);
+    }
+
+    private static abstract class Sink {
+        /**
+         * @return false when no more values are wanted.
+         */
+        abstract boolean accept(Object value);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable list of long values backed by a long[], for numeric work without boxing.
+ */
+public final class LongFunctionalList {
+    private static final LongFunctionalList EMPTY = new LongFunctionalList(new long[0], 0);
+
+    private final long[] values;
+    private final int size;
+
+    private LongFunctionalList(long[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Index: %s, Size: %s", index, size));
+        }
+        return values[index];
+    }
+
+    public LongFunctionalList map(LongFunction f) {
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = f.apply(values[i]);
+        }
+        return new LongFunctionalList(result, size);
+    }
+
+    public LongFunctionalList filter(LongPredicate pred) {
+        long[] result = new long[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            long value = values[i];
+            if (pred.apply(value)) {
+                result[count++] = value;
+            }
+        }
+        return count == size ? this : new LongFunctionalList(result, count);
+    }
+
+    public long reduce(LongUnion union, long seed) {
+        long u = seed;
+        for (int i = 0; i < size; i++) {
+            u = union.unite(u, values[i]);
+        }
+        return u;
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    public long min() {
+        checkNotEmpty();
+        long min = values[0];
+        for (int i = 1; i < size; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    public long max() {
+        checkNotEmpty();
+        long max = values[0];
+        for (int i = 1; i < size; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    public int count(LongPredicate pred) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (pred.apply(values[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public OptionalLong headOption() {
+        return size == 0 ? OptionalLong.none() : OptionalLong.some(values[0]);
+    }
+
+    public OptionalLong find(LongPredicate pred) {
+        for (int i = 0; i < size; i++) {
+            if (pred.apply(values[i])) {
+                return OptionalLong.some(values[i]);
+            }
+        }
+        return OptionalLong.none();
+    }
+
+    public boolean exists(LongPredicate pred) {
+        for (int i = 0; i < size; i++) {
+            if (pred.apply(values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean forall(LongPredicate pred) {
+        for (int i = 0; i < size; i++) {
+            if (!pred.apply(values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    public FunctionalList<Long> boxed() {
+        List<Long> list = new ArrayList<Long>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(values[i]);
+        }
+        return FunctionalList.create(list);
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0) {
+            throw new NoSuchElementException("Empty list");
+        }
+    }
+
+    /** factories **/
+
+    public static LongFunctionalList empty() {
+        return EMPTY;
+    }
+
+    public static LongFunctionalList of(long... values) {
+        return values.length == 0 ? EMPTY : new LongFunctionalList(values.clone(), values.length);
+    }
+
+    public static LongFunctionalList copyOf(Collection<Long> values) {
+        long[] array = new long[values.size()];
+        int i = 0;
+        for (Long value : values) {
+            array[i++] = value;
+        }
+        return new LongFunctionalList(array, i);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        LongFunctionalList other = (LongFunctionalList) o;
+        if (size != other.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (values[i] != other.values[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + (int) (values[i] ^ (values[i] >>> 32));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size * 4 + 2).append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
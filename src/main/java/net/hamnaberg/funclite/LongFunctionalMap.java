@@ -0,0 +1,239 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.Map;
+
+/**
+ * An immutable map from long to long without boxing, built with a {@link Builder}.
+ * Keys and values sit next to each other in one open addressing table, see {@link PrimitiveHashTable}.
+ * The table lives on the heap or off it, see {@link Storage}. Size a builder for mapped storage
+ * with the number of entries it will hold: a mapped table cannot grow.
+ */
+public final class LongFunctionalMap {
+    private static final LongFunctionalMap EMPTY = new Builder(0, Storage.heap()).build();
+
+    private final Table table;
+
+    private LongFunctionalMap(Table table) {
+        this.table = table;
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    public boolean isEmpty() {
+        return table.size() == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return table.containsKey(key);
+    }
+
+    public long getOrElse(long key, long defaultValue) {
+        if (key == 0) {
+            return table.hasZeroKey() ? table.zeroValue() : defaultValue;
+        }
+        long index = table.indexOf(key);
+        return index >= 0 ? table.slots.get(2 * index + 1) : defaultValue;
+    }
+
+    public OptionalLong getOptional(long key) {
+        if (key == 0) {
+            return table.hasZeroKey() ? OptionalLong.some(table.zeroValue()) : OptionalLong.none();
+        }
+        long index = table.indexOf(key);
+        return index >= 0 ? OptionalLong.some(table.slots.get(2 * index + 1)) : OptionalLong.none();
+    }
+
+    public LongFunctionalMap filterKeys(LongPredicate p) {
+        boolean keepZero = table.hasZeroKey() && p.apply(0);
+        int count = keepZero ? 1 : 0;
+        for (long i = 0; i < table.capacity(); i++) {
+            long key = table.slots.get(2 * i);
+            if (key != 0 && p.apply(key)) {
+                count++;
+            }
+        }
+        Builder builder = new Builder(count, table.derivedStorage());
+        if (keepZero) {
+            builder.put(0, table.zeroValue());
+        }
+        for (long i = 0; i < table.capacity(); i++) {
+            long key = table.slots.get(2 * i);
+            if (key != 0 && p.apply(key)) {
+                builder.put(key, table.slots.get(2 * i + 1));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Keeps the keys and the table layout, so no rehashing is done.
+     */
+    public LongFunctionalMap mapValues(LongFunction f) {
+        Table mapped = new Table(table.capacity(), table.derivedStorage());
+        for (long i = 0; i < table.capacity(); i++) {
+            long key = table.slots.get(2 * i);
+            if (key != 0) {
+                mapped.putAt(i, key, f.apply(table.slots.get(2 * i + 1)));
+            }
+        }
+        if (table.hasZeroKey()) {
+            mapped.put(0, f.apply(table.zeroValue()));
+        }
+        return new LongFunctionalMap(mapped);
+    }
+
+    public LongFunctionalList keys() {
+        long[] keys = new long[table.size()];
+        int n = 0;
+        if (table.hasZeroKey()) {
+            keys[n++] = 0;
+        }
+        for (long i = 0; i < table.capacity(); i++) {
+            long key = table.slots.get(2 * i);
+            if (key != 0) {
+                keys[n++] = key;
+            }
+        }
+        return LongFunctionalList.of(keys);
+    }
+
+    static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    /** factories **/
+
+    public static LongFunctionalMap empty() {
+        return EMPTY;
+    }
+
+    public static LongFunctionalMap copyOf(Map<Long, Long> map) {
+        Builder builder = builder(map.size());
+        for (Map.Entry<Long, Long> entry : map.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    public static Builder builder(long expectedSize) {
+        return builder(expectedSize, Storage.heap());
+    }
+
+    public static Builder builder(long expectedSize, Storage storage) {
+        Preconditions.checkArgument(expectedSize >= 0, "expectedSize must not be negative, was %s", expectedSize);
+        return new Builder(expectedSize, Preconditions.checkNotNull(storage));
+    }
+
+    public static final class Builder {
+        private Table table;
+        private boolean built;
+
+        private Builder(long expectedSize, Storage storage) {
+            this.table = new Table(PrimitiveHashTable.capacityFor(expectedSize), storage);
+        }
+
+        /**
+         * Adds the entry, replacing the value of an existing key.
+         */
+        public Builder put(long key, long value) {
+            if (built) {
+                throw new IllegalStateException("Already built");
+            }
+            table.put(key, value);
+            if (table.isFull()) {
+                table = (Table) table.grow();
+            }
+            return this;
+        }
+
+        public int size() {
+            return table.size();
+        }
+
+        public LongFunctionalMap build() {
+            Preconditions.checkState(!built, "Already built");
+            built = true;
+            return new LongFunctionalMap(table);
+        }
+    }
+
+    private static final class Table extends PrimitiveHashTable {
+        final LongSlots slots;
+
+        Table(long capacity, Storage storage) {
+            super(capacity, storage);
+            this.slots = LongSlots.allocate(2 * capacity, storage);
+        }
+
+        @Override
+        long key(long entry) {
+            return slots.get(2 * entry);
+        }
+
+        @Override
+        long value(long entry) {
+            return slots.get(2 * entry + 1);
+        }
+
+        @Override
+        void set(long entry, long key, long value) {
+            slots.set(2 * entry, key);
+            slots.set(2 * entry + 1, value);
+        }
+
+        @Override
+        void setValue(long entry, long value) {
+            slots.set(2 * entry + 1, value);
+        }
+
+        @Override
+        long hash(long key) {
+            return LongFunctionalMap.hash(key);
+        }
+
+        @Override
+        PrimitiveHashTable newTable(long capacity, Storage storage) {
+            return new Table(capacity, storage);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return table.sameEntries(((LongFunctionalMap) o).table);
+    }
+
+    @Override
+    public int hashCode() {
+        return table.entriesHash();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LongFunctionalMap{size=%s, %s}", table.size(), table.storage());
+    }
+}
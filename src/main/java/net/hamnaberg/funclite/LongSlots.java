@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed number of zero initialised long slots, on the heap or in direct or mapped memory.
+ */
+abstract class LongSlots {
+    abstract long get(long index);
+
+    abstract void set(long index, long value);
+
+    static LongSlots allocate(long count, Storage storage) {
+        if (storage.getKind() == Storage.Kind.HEAP) {
+            return new ArraySlots(Slots.heapCount(count));
+        }
+        return new BufferSlots(Slots.pages(count * 8, storage));
+    }
+
+    private static final class ArraySlots extends LongSlots {
+        private final long[] slots;
+
+        ArraySlots(int count) {
+            slots = new long[count];
+        }
+
+        @Override
+        long get(long index) {
+            return slots[(int) index];
+        }
+
+        @Override
+        void set(long index, long value) {
+            slots[(int) index] = value;
+        }
+    }
+
+    private static final class BufferSlots extends LongSlots {
+        private final ByteBuffer[] pages;
+
+        BufferSlots(ByteBuffer[] pages) {
+            this.pages = pages;
+        }
+
+        @Override
+        long get(long index) {
+            long offset = index << 3;
+            return pages[(int) (offset >>> Slots.PAGE_SHIFT)].getLong((int) (offset & Slots.PAGE_MASK));
+        }
+
+        @Override
+        void set(long index, long value) {
+            long offset = index << 3;
+            pages[(int) (offset >>> Slots.PAGE_SHIFT)].putLong((int) (offset & Slots.PAGE_MASK), value);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A read-only list over a file of records written by {@link #write(File, Iterable, RecordCodec)}.
+ * The file is mapped into memory, so opening it reads only the header, the OS page cache holds the data
+ * instead of the heap, and get decodes one record straight from the mapping. Sub lists share the mapping.
+ * <p>
+ * Records are stored back to back after a 32 byte header. When the codec has a fixed length, the index
+ * of a record gives its position; otherwise an index of record offsets follows the records.
+ * The file is mapped in segments of 1GB that overlap by the longest record, so no record is split
+ * between two segments. The mapping stays valid after the file channel is closed and goes away with the list.
+ */
+public final class MappedList<A> extends AbstractList<A> implements RandomAccess {
+    private static final int MAGIC = 0x46434c31;
+    private static final int HEADER = 32;
+    private static final int FIXED = 0;
+    private static final int VARIABLE = 1;
+    private static final int SEGMENT_SHIFT = 30;
+
+    private final ByteBuffer[] segments;
+    private final int segmentShift;
+    private final RecordCodec<A> codec;
+    private final int recordLength;
+    private final long indexOffset;
+    private final int from;
+    private final int size;
+
+    private MappedList(ByteBuffer[] segments, int segmentShift, RecordCodec<A> codec, int recordLength, long indexOffset, int from, int size) {
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+        this.codec = codec;
+        this.recordLength = recordLength;
+        this.indexOffset = indexOffset;
+        this.from = from;
+        this.size = size;
+    }
+
+    @Override
+    public A get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Index %s, size %s", index, size));
+        }
+        long record = (long) from + index;
+        long start;
+        int length;
+        if (indexOffset == 0) {
+            start = HEADER + record * recordLength;
+            length = recordLength;
+        }
+        else {
+            start = readLong(indexOffset + record * 8);
+            length = (int) (readLong(indexOffset + record * 8 + 8) - start);
+        }
+        ByteBuffer buffer = segments[(int) (start >>> segmentShift)].duplicate();
+        int position = (int) (start & ((1L << segmentShift) - 1));
+        buffer.limit(position + length).position(position);
+        return codec.decode(buffer);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A view sharing the mapping; nothing is copied.
+     */
+    @Override
+    public List<A> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException(String.format("fromIndex %s, toIndex %s, size %s", fromIndex, toIndex, size));
+        }
+        return new MappedList<A>(segments, segmentShift, codec, recordLength, indexOffset, from + fromIndex, toIndex - fromIndex);
+    }
+
+    private long readLong(long position) {
+        return segments[(int) (position >>> segmentShift)].getLong((int) (position & ((1L << segmentShift) - 1)));
+    }
+
+    /** factories **/
+
+    public static <A> FunctionalList<A> open(File file, RecordCodec<A> codec) {
+        return open(file, codec, SEGMENT_SHIFT);
+    }
+
+    static <A> FunctionalList<A> open(File file, RecordCodec<A> codec, int segmentShift) {
+        Preconditions.checkNotNull(codec);
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                long length = channel.size();
+                Preconditions.checkState(length >= HEADER, "%s is not a record file", file);
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+                Preconditions.checkState(header.getInt(0) == MAGIC, "%s is not a record file", file);
+                int layout = header.getInt(4);
+                long count = header.getLong(8);
+                int recordLength = header.getInt(16);
+                long indexOffset = header.getLong(24);
+                Preconditions.checkState(count <= Integer.MAX_VALUE, "%s has too many records for a list: %s", file, count);
+                Preconditions.checkState(layout == VARIABLE || recordLength == codec.fixedLength(),
+                        "%s has records of %s bytes, the codec expects %s", file, recordLength, codec.fixedLength());
+                long overlap = Math.max(recordLength, 8);
+                ByteBuffer[] segments = new ByteBuffer[(int) ((length + (1L << segmentShift) - 1) >>> segmentShift)];
+                for (int i = 0; i < segments.length; i++) {
+                    long start = (long) i << segmentShift;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length - start, (1L << segmentShift) + overlap));
+                }
+                return FunctionalList.create(new MappedList<A>(segments, segmentShift, codec, recordLength, layout == FIXED ? 0 : indexOffset, 0, (int) count));
+            }
+            finally {
+                raf.close();
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(String.format("Could not map %s", file), e);
+        }
+    }
+
+    /**
+     * Writes the values as records, replacing the file, and opens it. Variable length records need one long
+     * per record for the offset index, which is spooled to a temporary file next to the target.
+     * A single record must be shorter than 1GB, so a segment and its overlap fit in one mapping.
+     */
+    public static <A> FunctionalList<A> write(File file, Iterable<A> values, RecordCodec<A> codec) {
+        int fixedLength = codec.fixedLength();
+        try {
+            File indexFile = fixedLength < 0 ? File.createTempFile(file.getName(), ".index", file.getAbsoluteFile().getParentFile()) : null;
+            try {
+                CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+                DataOutputStream out = new DataOutputStream(counter);
+                DataOutputStream index = indexFile != null ? new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile), 1 << 16)) : null;
+                long count = 0;
+                long maxLength = Math.max(fixedLength, 0);
+                try {
+                    out.write(new byte[HEADER]);
+                    for (A value : values) {
+                        long start = counter.count;
+                        if (index != null) {
+                            index.writeLong(start);
+                        }
+                        codec.encode(value, out);
+                        long length = counter.count - start;
+                        Preconditions.checkState(fixedLength < 0 || length == fixedLength, "Codec wrote %s bytes for a record of %s", length, fixedLength);
+                        Preconditions.checkState(length < 1 << SEGMENT_SHIFT, "Record of %s bytes is not shorter than 1GB", length);
+                        maxLength = Math.max(maxLength, length);
+                        count++;
+                    }
+                    long indexOffset = 0;
+                    if (index != null) {
+                        indexOffset = counter.count;
+                        index.writeLong(indexOffset);
+                        index.close();
+                        index = null;
+                        copy(indexFile, out);
+                    }
+                    out.close();
+                    out = null;
+                    writeHeader(file, fixedLength < 0 ? VARIABLE : FIXED, count, (int) maxLength, indexOffset);
+                }
+                finally {
+                    if (index != null) {
+                        index.close();
+                    }
+                    if (out != null) {
+                        out.close();
+                    }
+                }
+            }
+            finally {
+                if (indexFile != null && !indexFile.delete()) {
+                    indexFile.deleteOnExit();
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(String.format("Could not write %s", file), e);
+        }
+        return open(file, codec);
+    }
+
+    private static void writeHeader(File file, int layout, long count, int recordLength, long indexOffset) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.writeInt(MAGIC);
+            raf.writeInt(layout);
+            raf.writeLong(count);
+            raf.writeInt(recordLength);
+            raf.writeInt(0);
+            raf.writeLong(indexOffset);
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    private static void copy(File from, OutputStream out) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(from));
+        try {
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A function that caches its results, created by {@link Functions#memoize(Function, CacheSpec)}.
+ * <p>
+ * Lookups go straight to a concurrent map and never block on other readers. The eviction order is
+ * kept under a single lock: writers always take it, readers only record their access when the lock
+ * is free, so under heavy contention some accesses are not counted. Concurrent misses on the same key
+ * share one computation. Expired entries are dropped when they are read or when a later write finds them.
+ */
+public final class MemoizedFunction<A, B> implements Function<A, B> {
+    private final Function<A, B> f;
+    private final CacheSpec<? super B> spec;
+    private final ConcurrentMap<A, Node<A, B>> map = new ConcurrentHashMap<A, Node<A, B>>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Policy<A, B> policy;
+    private final ArrayDeque<Node<A, B>> writeOrder = new ArrayDeque<Node<A, B>>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    MemoizedFunction(Function<A, B> f, CacheSpec<? super B> spec) {
+        this.f = Preconditions.checkNotNull(f);
+        this.spec = Preconditions.checkNotNull(spec);
+        long maximum = spec.getMaximum();
+        if (maximum < 0) {
+            this.policy = new Lru<A, B>(Long.MAX_VALUE);
+        }
+        else {
+            this.policy = spec.getEviction() == CacheSpec.Eviction.TINY_LFU ? new TinyLfu<A, B>(maximum) : new Lru<A, B>(maximum);
+        }
+    }
+
+    @Override
+    public B apply(A input) {
+        Preconditions.checkNotNull(input);
+        while (true) {
+            Node<A, B> node = map.get(input);
+            if (node == null) {
+                Node<A, B> created = new Node<A, B>(input, f);
+                node = map.putIfAbsent(input, created);
+                if (node == null) {
+                    misses.incrementAndGet();
+                    return load(created);
+                }
+            }
+            if (node.isExpired(spec)) {
+                remove(node);
+                continue;
+            }
+            hits.incrementAndGet();
+            if (node.isLoaded() && lock.tryLock()) {
+                try {
+                    policy.onAccess(node);
+                }
+                finally {
+                    lock.unlock();
+                }
+            }
+            return node.await();
+        }
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.get(), misses.get(), evictions.get());
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public void invalidate(A input) {
+        Node<A, B> node = map.get(input);
+        if (node != null) {
+            remove(node);
+        }
+    }
+
+    public void invalidateAll() {
+        for (Node<A, B> node : map.values()) {
+            remove(node);
+        }
+    }
+
+    private B load(Node<A, B> node) {
+        node.loader = Thread.currentThread();
+        node.task.run();
+        node.loader = null;
+        B value;
+        try {
+            value = node.await();
+        }
+        catch (RuntimeException e) {
+            map.remove(node.key, node);
+            throw e;
+        }
+        catch (Error e) {
+            map.remove(node.key, node);
+            throw e;
+        }
+        Function<? super B, Integer> weigher = spec.getWeigher();
+        int weight = weigher == null ? 1 : weigher.apply(value);
+        Preconditions.checkArgument(weight >= 0, "weight must not be negative, was %s", weight);
+        lock.lock();
+        try {
+            node.weight = weight;
+            node.writeTime = spec.getTicker().read();
+            if (map.get(node.key) == node) {
+                policy.onAdd(node);
+                if (spec.getExpireAfterWriteNanos() > 0) {
+                    writeOrder.add(node);
+                    expireEntries();
+                }
+                Node<A, B> victim;
+                while ((victim = policy.victim()) != null) {
+                    policy.onRemove(victim);
+                    if (map.remove(victim.key, victim)) {
+                        evictions.incrementAndGet();
+                    }
+                }
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    private void expireEntries() {
+        Node<A, B> head;
+        while ((head = writeOrder.peek()) != null && (head.removed || head.isExpired(spec))) {
+            writeOrder.poll();
+            if (!head.removed) {
+                policy.onRemove(head);
+                map.remove(head.key, head);
+            }
+        }
+    }
+
+    private void remove(Node<A, B> node) {
+        if (map.remove(node.key, node)) {
+            lock.lock();
+            try {
+                policy.onRemove(node);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MemoizedFunction{%s, %s}", spec, stats());
+    }
+
+    static final class Node<A, B> {
+        static final int NONE = 0, WINDOW = 1, PROBATION = 2, PROTECTED = 3;
+
+        final A key;
+        final FutureTask<B> task;
+        volatile Thread loader;
+        volatile long writeTime = Long.MAX_VALUE;
+        // guarded by the lock
+        int weight;
+        int queue = NONE;
+        boolean removed;
+        Node<A, B> prev, next;
+
+        Node(final A key, final Function<A, B> f) {
+            this.key = key;
+            this.task = new FutureTask<B>(new Callable<B>() {
+                @Override
+                public B call() throws Exception {
+                    return f.apply(key);
+                }
+            });
+        }
+
+        boolean isLoaded() {
+            return writeTime != Long.MAX_VALUE;
+        }
+
+        boolean isExpired(CacheSpec<?> spec) {
+            long expireAfter = spec.getExpireAfterWriteNanos();
+            long written = writeTime;
+            return expireAfter > 0 && written != Long.MAX_VALUE && spec.getTicker().read() - written >= expireAfter;
+        }
+
+        B await() {
+            if (loader == Thread.currentThread()) {
+                throw new IllegalStateException(String.format("Recursive load of %s", key));
+            }
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return task.get();
+                    }
+                    catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                    catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof RuntimeException) {
+                            throw (RuntimeException) cause;
+                        }
+                        if (cause instanceof Error) {
+                            throw (Error) cause;
+                        }
+                        throw new RuntimeException(cause);
+                    }
+                }
+            }
+            finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * A doubly linked list of nodes in access order, oldest first, that keeps the sum of their weights.
+     */
+    static final class AccessQueue<A, B> {
+        private final Node<A, B> head = new Node<A, B>(null, null);
+        long weight;
+
+        AccessQueue() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        Node<A, B> first() {
+            return head.next == head ? null : head.next;
+        }
+
+        Node<A, B> last() {
+            return head.prev == head ? null : head.prev;
+        }
+
+        void addLast(Node<A, B> node, int queue) {
+            node.queue = queue;
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            weight += node.weight;
+        }
+
+        void remove(Node<A, B> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            node.queue = Node.NONE;
+            weight -= node.weight;
+        }
+
+        void moveToEnd(Node<A, B> node) {
+            int queue = node.queue;
+            remove(node);
+            addLast(node, queue);
+        }
+    }
+
+    /**
+     * The eviction order. All methods are called with the lock held.
+     */
+    static abstract class Policy<A, B> {
+        abstract void onAdd(Node<A, B> node);
+
+        abstract void onAccess(Node<A, B> node);
+
+        abstract void onRemove(Node<A, B> node);
+
+        /**
+         * @return the next entry to evict, or null when the cache is within its maximum.
+         */
+        abstract Node<A, B> victim();
+    }
+
+    static final class Lru<A, B> extends Policy<A, B> {
+        private final long maximum;
+        private final AccessQueue<A, B> queue = new AccessQueue<A, B>();
+
+        Lru(long maximum) {
+            this.maximum = maximum;
+        }
+
+        @Override
+        void onAdd(Node<A, B> node) {
+            queue.addLast(node, Node.WINDOW);
+        }
+
+        @Override
+        void onAccess(Node<A, B> node) {
+            if (node.queue != Node.NONE) {
+                queue.moveToEnd(node);
+            }
+        }
+
+        @Override
+        void onRemove(Node<A, B> node) {
+            if (node.queue != Node.NONE) {
+                queue.remove(node);
+            }
+            node.removed = true;
+        }
+
+        @Override
+        Node<A, B> victim() {
+            return queue.weight > maximum ? queue.first() : null;
+        }
+    }
+
+    /**
+     * A 1% LRU window in front of a segmented LRU main space with 80% of the main space protected.
+     * Entries leaving the window compete with the oldest probation entry, and the one the
+     * frequency sketch has seen less often is evicted.
+     */
+    static final class TinyLfu<A, B> extends Policy<A, B> {
+        private final long windowMaximum;
+        private final long mainMaximum;
+        private final long protectedMaximum;
+        private final FrequencySketch sketch;
+        private final AccessQueue<A, B> window = new AccessQueue<A, B>();
+        private final AccessQueue<A, B> probation = new AccessQueue<A, B>();
+        private final AccessQueue<A, B> protectedQueue = new AccessQueue<A, B>();
+        private int candidates;
+
+        TinyLfu(long maximum) {
+            this.windowMaximum = Math.min(maximum, Math.max(1, maximum / 100));
+            this.mainMaximum = maximum - windowMaximum;
+            this.protectedMaximum = mainMaximum - mainMaximum / 5;
+            this.sketch = new FrequencySketch(maximum);
+        }
+
+        @Override
+        void onAdd(Node<A, B> node) {
+            sketch.increment(node.key);
+            window.addLast(node, Node.WINDOW);
+            while (window.weight > windowMaximum) {
+                Node<A, B> candidate = window.first();
+                window.remove(candidate);
+                probation.addLast(candidate, Node.PROBATION);
+                candidates++;
+            }
+        }
+
+        @Override
+        void onAccess(Node<A, B> node) {
+            sketch.increment(node.key);
+            switch (node.queue) {
+                case Node.WINDOW:
+                    window.moveToEnd(node);
+                    break;
+                case Node.PROBATION:
+                    probation.remove(node);
+                    protectedQueue.addLast(node, Node.PROTECTED);
+                    while (protectedQueue.weight > protectedMaximum) {
+                        Node<A, B> demoted = protectedQueue.first();
+                        protectedQueue.remove(demoted);
+                        probation.addLast(demoted, Node.PROBATION);
+                    }
+                    break;
+                case Node.PROTECTED:
+                    protectedQueue.moveToEnd(node);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        void onRemove(Node<A, B> node) {
+            switch (node.queue) {
+                case Node.WINDOW:
+                    window.remove(node);
+                    break;
+                case Node.PROBATION:
+                    probation.remove(node);
+                    break;
+                case Node.PROTECTED:
+                    protectedQueue.remove(node);
+                    break;
+                default:
+                    break;
+            }
+            node.removed = true;
+        }
+
+        @Override
+        Node<A, B> victim() {
+            if (probation.weight + protectedQueue.weight <= mainMaximum) {
+                candidates = 0;
+                return null;
+            }
+            Node<A, B> victim = probation.first();
+            if (victim == null) {
+                return protectedQueue.first();
+            }
+            Node<A, B> candidate = probation.last();
+            if (candidates == 0 || candidate == victim) {
+                return victim;
+            }
+            candidates--;
+            return sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+/**
+ * Counters and latencies for one instrumented name. Decorators created with the same name share them.
+ * Passes only apply to predicates: the number of calls that returned true.
+ */
+public final class Metrics implements MetricsMXBean {
+    private final String name;
+    private final StripedCounter invocations = new StripedCounter();
+    private final StripedCounter errors = new StripedCounter();
+    private final StripedCounter passes = new StripedCounter();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    Metrics(String name) {
+        this.name = name;
+    }
+
+    long invoked() {
+        return invocations.increment();
+    }
+
+    void failed() {
+        errors.increment();
+    }
+
+    void passed() {
+        passes.increment();
+    }
+
+    void sampled(long nanos) {
+        latency.record(nanos);
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getPasses() {
+        return passes.sum();
+    }
+
+    @Override
+    public double getPassRate() {
+        long invoked = getInvocations() - getErrors();
+        return invoked <= 0 ? 0 : (double) getPasses() / invoked;
+    }
+
+    @Override
+    public long getSampledCalls() {
+        return latency.count();
+    }
+
+    @Override
+    public double getMeanNanos() {
+        return latency.mean();
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return latency.percentile(0.5);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return latency.percentile(0.99);
+    }
+
+    @Override
+    public long getP999Nanos() {
+        return latency.percentile(0.999);
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return latency.max();
+    }
+
+    @Override
+    public void reset() {
+        invocations.reset();
+        errors.reset();
+        passes.reset();
+        latency.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Metrics{name=%s, invocations=%s, errors=%s, latency=%s}", name, getInvocations(), getErrors(), latency);
+    }
+}
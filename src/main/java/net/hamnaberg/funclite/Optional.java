@@ -57,7 +57,9 @@ public abstract class Optional<A> implements Iterable<A> {
     }
 
     public final void foreach(Effect<A> e) {
-        CollectionOps.foreach(this, e);
+        if (isSome()) {
+            e.exec(get());
+        }
     }
 
     public final Optional<A> filter(Predicate<A> input) {
@@ -69,12 +71,12 @@ public abstract class Optional<A> implements Iterable<A> {
         }
     }
 
-    public boolean forall(Predicate<A> input) {
-        return CollectionOps.forall(this, input);
+    public final boolean forall(Predicate<A> input) {
+        return isNone() || input.apply(get());
     }
 
-    public boolean exists(Predicate<A> input) {
-        return CollectionOps.exists(this, input);
+    public final boolean exists(Predicate<A> input) {
+        return isSome() && input.apply(get());
     }
 
     public static <A> Optional<A> fromNullable(A value) {
@@ -98,26 +100,26 @@ public abstract class Optional<A> implements Iterable<A> {
         return (Optional<A>) NONE;
     }
 
-    public A orNull() {
+    public final A orNull() {
         return isSome() ? get() : null;
     }
 
-    public A getOrElse(A orElse) {
+    public final A getOrElse(A orElse) {
         return isSome() ? get() : orElse;
     }
 
-    public A getOrElse(Supplier<A> orElse) {
+    public final A getOrElse(Supplier<A> orElse) {
         return isSome() ? get() : orElse.get();
     }
 
-    public Optional<A> or(Optional<A> orElse) {
+    public final Optional<A> or(Optional<A> orElse) {
         return isSome() ? this : orElse;
     }
 
     @Override
     public final Iterator<A> iterator() {
         return new Iterator<A>() {
-            private volatile boolean used = false;
+            private boolean used = false;
             @Override
             public boolean hasNext() {
                 return !used && isSome();
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+/**
+ * An optional {@code double} that never boxes.
+ */
+public final class OptionalDouble {
+    private static final OptionalDouble NONE = new OptionalDouble(false, 0);
+
+    private final boolean some;
+    private final double value;
+
+    private OptionalDouble(boolean some, double value) {
+        this.some = some;
+        this.value = value;
+    }
+
+    public boolean isSome() {
+        return some;
+    }
+
+    public boolean isNone() {
+        return !some;
+    }
+
+    public double get() {
+        if (!some) {
+            throw new UnsupportedOperationException("Cannot get from None");
+        }
+        return value;
+    }
+
+    public double getOrElse(double orElse) {
+        return some ? value : orElse;
+    }
+
+    public OptionalDouble map(DoubleFunction f) {
+        return some ? some(f.apply(value)) : NONE;
+    }
+
+    public OptionalDouble filter(DoublePredicate pred) {
+        return some && pred.apply(value) ? this : NONE;
+    }
+
+    public boolean exists(DoublePredicate pred) {
+        return some && pred.apply(value);
+    }
+
+    public boolean forall(DoublePredicate pred) {
+        return !some || pred.apply(value);
+    }
+
+    public Optional<Double> boxed() {
+        return some ? Optional.some(Double.valueOf(value)) : Optional.<Double>none();
+    }
+
+    public static OptionalDouble some(double value) {
+        return new OptionalDouble(true, value);
+    }
+
+    public static OptionalDouble none() {
+        return NONE;
+    }
+
+    public static OptionalDouble fromOptional(Optional<Double> optional) {
+        return optional.isSome() ? some(optional.get()) : NONE;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        OptionalDouble other = (OptionalDouble) o;
+        return some == other.some && Double.compare(value, other.value) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return some ? (int) (Double.doubleToLongBits(value) ^ (Double.doubleToLongBits(value) >>> 32)) : 31;
+    }
+
+    @Override
+    public String toString() {
+        return some ? "Some{" + value + "}" : "None";
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+/**
+ * An optional {@code int} that never boxes.
+ */
+public final class OptionalInt {
+    private static final OptionalInt NONE = new OptionalInt(false, 0);
+
+    private final boolean some;
+    private final int value;
+
+    private OptionalInt(boolean some, int value) {
+        this.some = some;
+        this.value = value;
+    }
+
+    public boolean isSome() {
+        return some;
+    }
+
+    public boolean isNone() {
+        return !some;
+    }
+
+    public int get() {
+        if (!some) {
+            throw new UnsupportedOperationException("Cannot get from None");
+        }
+        return value;
+    }
+
+    public int getOrElse(int orElse) {
+        return some ? value : orElse;
+    }
+
+    public OptionalInt map(IntFunction f) {
+        return some ? some(f.apply(value)) : NONE;
+    }
+
+    public OptionalInt filter(IntPredicate pred) {
+        return some && pred.apply(value) ? this : NONE;
+    }
+
+    public boolean exists(IntPredicate pred) {
+        return some && pred.apply(value);
+    }
+
+    public boolean forall(IntPredicate pred) {
+        return !some || pred.apply(value);
+    }
+
+    public Optional<Integer> boxed() {
+        return some ? Optional.some(Integer.valueOf(value)) : Optional.<Integer>none();
+    }
+
+    public static OptionalInt some(int value) {
+        return new OptionalInt(true, value);
+    }
+
+    public static OptionalInt none() {
+        return NONE;
+    }
+
+    public static OptionalInt fromOptional(Optional<Integer> optional) {
+        return optional.isSome() ? some(optional.get()) : NONE;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        OptionalInt other = (OptionalInt) o;
+        return some == other.some && value == other.value;
+    }
+
+    @Override
+    public int hashCode() {
+        return some ? value : 31;
+    }
+
+    @Override
+    public String toString() {
+        return some ? "Some{" + value + "}" : "None";
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+/**
+ * An optional {@code long} that never boxes.
+ */
+public final class OptionalLong {
+    private static final OptionalLong NONE = new OptionalLong(false, 0);
+
+    private final boolean some;
+    private final long value;
+
+    private OptionalLong(boolean some, long value) {
+        this.some = some;
+        this.value = value;
+    }
+
+    public boolean isSome() {
+        return some;
+    }
+
+    public boolean isNone() {
+        return !some;
+    }
+
+    public long get() {
+        if (!some) {
+            throw new UnsupportedOperationException("Cannot get from None");
+        }
+        return value;
+    }
+
+    public long getOrElse(long orElse) {
+        return some ? value : orElse;
+    }
+
+    public OptionalLong map(LongFunction f) {
+        return some ? some(f.apply(value)) : NONE;
+    }
+
+    public OptionalLong filter(LongPredicate pred) {
+        return some && pred.apply(value) ? this : NONE;
+    }
+
+    public boolean exists(LongPredicate pred) {
+        return some && pred.apply(value);
+    }
+
+    public boolean forall(LongPredicate pred) {
+        return !some || pred.apply(value);
+    }
+
+    public Optional<Long> boxed() {
+        return some ? Optional.some(Long.valueOf(value)) : Optional.<Long>none();
+    }
+
+    public static OptionalLong some(long value) {
+        return new OptionalLong(true, value);
+    }
+
+    public static OptionalLong none() {
+        return NONE;
+    }
+
+    public static OptionalLong fromOptional(Optional<Long> optional) {
+        return optional.isSome() ? some(optional.get()) : NONE;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        OptionalLong other = (OptionalLong) o;
+        return some == other.some && value == other.value;
+    }
+
+    @Override
+    public int hashCode() {
+        return some ? (int) (value ^ (value >>> 32)) : 31;
+    }
+
+    @Override
+    public String toString() {
+        return some ? "Some{" + value + "}" : "None";
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parallel operations over a list, see {@link FunctionalList#par()}.
+ */
+public final class ParallelList<A> {
+    private final List<A> list;
+    private final Parallelism parallelism;
+
+    ParallelList(List<A> list, Parallelism parallelism) {
+        this.list = list;
+        this.parallelism = parallelism;
+    }
+
+    public <B> FunctionalList<B> map(Function<A, B> f) {
+        return FunctionalList.create(CollectionOps.parMap(list, f, parallelism));
+    }
+
+    public FunctionalList<A> filter(Predicate<A> pred) {
+        return FunctionalList.create(CollectionOps.parFilter(list, pred, parallelism));
+    }
+
+    public <B> FunctionalList<B> flatMap(Function<A, Iterable<B>> f) {
+        return FunctionalList.create(CollectionOps.parFlatMap(list, f, parallelism));
+    }
+
+    public A reduce(Union<A> u, A seed) {
+        return CollectionOps.parReduce(list, u, seed, parallelism);
+    }
+
+    public <K> Map<K, Collection<A>> groupBy(Function<A, K> grouper) {
+        return CollectionOps.parGroupBy(list, grouper, parallelism);
+    }
+
+    public <K extends Comparable<? super K>> FunctionalList<A> sortBy(Function<A, K> key) {
+        return FunctionalList.create(CollectionOps.parSortBy(list, key, parallelism));
+    }
+
+    public ParallelList<A> with(Parallelism parallelism) {
+        return new ParallelList<A>(list, Preconditions.checkNotNull(parallelism));
+    }
+
+    public FunctionalList<A> seq() {
+        return FunctionalList.create(list);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Settings for the parallel operations in {@link CollectionOps} and {@link ParallelList}.
+ * Lists are split into index ranges, each range runs as one task on the executor,
+ * and the results are joined in list order. Lists smaller than the threshold run sequentially
+ * in the calling thread, as do parallel operations started from inside another parallel task.
+ */
+public final class Parallelism {
+    public static final int DEFAULT_THRESHOLD = 8192;
+
+    private static final Parallelism DEFAULT = new Parallelism(null, Runtime.getRuntime().availableProcessors(), DEFAULT_THRESHOLD);
+    private static final ThreadLocal<Boolean> IN_TASK = new ThreadLocal<Boolean>();
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int threshold;
+
+    private Parallelism(ExecutorService executor, int parallelism, int threshold) {
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.threshold = threshold;
+    }
+
+    public static Parallelism defaults() {
+        return DEFAULT;
+    }
+
+    public Parallelism withThreshold(int threshold) {
+        Preconditions.checkArgument(threshold > 0, "threshold must be positive, was %s", threshold);
+        return new Parallelism(executor, parallelism, threshold);
+    }
+
+    public Parallelism withExecutor(ExecutorService executor, int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be positive, was %s", parallelism);
+        return new Parallelism(Preconditions.checkNotNull(executor), parallelism, threshold);
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Runs the chunk over consecutive index ranges of the list and returns the chunk results in list order.
+     */
+    <A, R> List<R> run(List<A> input, final Chunk<A, R> chunk) {
+        final List<A> list = input instanceof RandomAccess ? input : new ArrayList<A>(input);
+        int size = list.size();
+        int chunks = Math.min(parallelism * 4, (size + threshold - 1) / threshold);
+        if (chunks <= 1 || inTask()) {
+            List<R> results = new ArrayList<R>(1);
+            results.add(chunk.apply(list, 0, size));
+            return results;
+        }
+        int chunkSize = (size + chunks - 1) / chunks;
+        List<Callable<R>> tasks = new ArrayList<Callable<R>>(chunks);
+        for (int from = 0; from < size; from += chunkSize) {
+            final int start = from;
+            final int end = Math.min(size, from + chunkSize);
+            tasks.add(new Callable<R>() {
+                @Override
+                public R call() throws Exception {
+                    return chunk.apply(list, start, end);
+                }
+            });
+        }
+        return invokeAll(tasks);
+    }
+
+    /**
+     * Runs the first task in the calling thread and the rest on the executor, returning the results in task order.
+     * The first failure is rethrown and the remaining tasks are cancelled.
+     */
+    <R> List<R> invokeAll(List<Callable<R>> tasks) {
+        List<R> results = new ArrayList<R>(tasks.size());
+        if (tasks.isEmpty()) {
+            return results;
+        }
+        ExecutorService service = executor != null ? executor : DefaultExecutor.INSTANCE;
+        List<Future<R>> futures = new ArrayList<Future<R>>(tasks.size());
+        try {
+            if (inTask()) {
+                for (Callable<R> task : tasks) {
+                    results.add(task.call());
+                }
+                return results;
+            }
+            for (final Callable<R> task : tasks.subList(1, tasks.size())) {
+                futures.add(service.submit(new Callable<R>() {
+                    @Override
+                    public R call() throws Exception {
+                        return callInTask(task);
+                    }
+                }));
+            }
+            results.add(callInTask(tasks.get(0)));
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parallel tasks", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (Exception e) {
+            throw rethrow(e);
+        } finally {
+            for (Future<R> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Marks the thread as running a parallel task, so nested parallel operations run sequentially in it.
+     */
+    private static <R> R callInTask(Callable<R> task) throws Exception {
+        IN_TASK.set(Boolean.TRUE);
+        try {
+            return task.call();
+        } finally {
+            IN_TASK.remove();
+        }
+    }
+
+    boolean inTask() {
+        return Boolean.TRUE.equals(IN_TASK.get());
+    }
+
+    static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    static abstract class Chunk<A, R> {
+        abstract R apply(List<A> list, int from, int to);
+    }
+
+    private static final class DefaultExecutor {
+        static final ExecutorService INSTANCE = Executors.newFixedThreadPool(DEFAULT.parallelism, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "funclite-parallel-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable hash map stored as a hash array mapped trie. updated, removed and merge
+ * return new maps that share every untouched node with the original.
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final Object NOT_FOUND = new Object();
+
+    private static final PersistentHashMap<Object, Object> EMPTY = new PersistentHashMap<Object, Object>(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> copyOf(Map<K, V> map) {
+        if (map instanceof PersistentHashMap) {
+            return (PersistentHashMap<K, V>) map;
+        }
+        return PersistentHashMap.<K, V>empty().merge(map);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        Object value = root.find(key, hash(key), 0);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return root.find(key, hash(key), 0) != NOT_FOUND;
+    }
+
+    public PersistentHashMap<K, V> updated(K key, V value) {
+        Change change = new Change();
+        Node newRoot = root.updated(key, value, hash(key), 0, change);
+        return newRoot == root ? this : new PersistentHashMap<K, V>(newRoot, size + change.sizeDelta);
+    }
+
+    public PersistentHashMap<K, V> removed(K key) {
+        Change change = new Change();
+        Node newRoot = root.removed(key, hash(key), 0, change);
+        return newRoot == root ? this : new PersistentHashMap<K, V>(newRoot, size + change.sizeDelta);
+    }
+
+    /**
+     * Adds all entries of the other map; values from the other map win.
+     */
+    public PersistentHashMap<K, V> merge(Map<? extends K, ? extends V> other) {
+        PersistentHashMap<K, V> result = this;
+        for (Map.Entry<? extends K, ? extends V> entry : other.entrySet()) {
+            result = result.updated(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Adds all entries of the other map, uniting the values of keys present in both.
+     */
+    @SuppressWarnings("unchecked")
+    public PersistentHashMap<K, V> merge(Map<? extends K, ? extends V> other, Union<V> union) {
+        PersistentHashMap<K, V> result = this;
+        for (Map.Entry<? extends K, ? extends V> entry : other.entrySet()) {
+            K key = entry.getKey();
+            int hash = hash(key);
+            Object existing = result.root.find(key, hash, 0);
+            V value = existing == NOT_FOUND ? entry.getValue() : union.unite((V) existing, entry.getValue());
+            Change change = new Change();
+            Node newRoot = result.root.updated(key, value, hash, 0, change);
+            if (newRoot != result.root) {
+                result = new PersistentHashMap<K, V>(newRoot, result.size + change.sizeDelta);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator<K, V>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean eq(Object a, Object b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static Node mergeTwo(Object k0, Object v0, int h0, Object k1, Object v1, int h1, int shift) {
+        if (shift >= 32) {
+            return new CollisionNode(h0, new Object[]{k0, k1}, new Object[]{v0, v1});
+        }
+        int b0 = bitpos(h0, shift);
+        int b1 = bitpos(h1, shift);
+        if (b0 == b1) {
+            return new BitmapNode(0, b0, new Object[]{mergeTwo(k0, v0, h0, k1, v1, h1, shift + BITS)});
+        }
+        Object[] content = Integer.bitCount(b0 - 1) < Integer.bitCount(b1 - 1)
+                ? new Object[]{k0, v0, k1, v1}
+                : new Object[]{k1, v1, k0, v0};
+        return new BitmapNode(b0 | b1, 0, content);
+    }
+
+    private static final class Change {
+        int sizeDelta;
+    }
+
+    private static abstract class Node {
+        abstract Object find(Object key, int hash, int shift);
+
+        abstract Node updated(Object key, Object value, int hash, int shift, Change change);
+
+        abstract Node removed(Object key, int hash, int shift, Change change);
+
+        abstract int payloadArity();
+
+        abstract Object key(int index);
+
+        abstract Object value(int index);
+
+        abstract int nodeArity();
+
+        abstract Node node(int index);
+    }
+
+    /**
+     * Entries are stored inline as key, value pairs, followed by the sub nodes.
+     * dataMap and nodeMap tell which of the 32 slots at this level hold an entry or a sub node.
+     */
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, 0, new Object[0]);
+
+        private final int dataMap;
+        private final int nodeMap;
+        private final Object[] content;
+
+        BitmapNode(int dataMap, int nodeMap, Object[] content) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                return eq(key, content[2 * index]) ? content[2 * index + 1] : NOT_FOUND;
+            }
+            if ((nodeMap & bit) != 0) {
+                return nodeAt(bit).find(key, hash, shift + BITS);
+            }
+            return NOT_FOUND;
+        }
+
+        @Override
+        Node updated(Object key, Object value, int hash, int shift, Change change) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                Object currentKey = content[2 * index];
+                if (eq(currentKey, key)) {
+                    if (content[2 * index + 1] == value) {
+                        return this;
+                    }
+                    Object[] copy = content.clone();
+                    copy[2 * index + 1] = value;
+                    return new BitmapNode(dataMap, nodeMap, copy);
+                }
+                Object currentValue = content[2 * index + 1];
+                Node sub = mergeTwo(currentKey, currentValue, PersistentHashMap.hash(currentKey), key, value, hash, shift + BITS);
+                change.sizeDelta = 1;
+                return migrateToNode(bit, index, sub);
+            }
+            if ((nodeMap & bit) != 0) {
+                Node sub = nodeAt(bit);
+                Node newSub = sub.updated(key, value, hash, shift + BITS, change);
+                return newSub == sub ? this : withNode(bit, newSub);
+            }
+            change.sizeDelta = 1;
+            int index = dataIndex(bit);
+            Object[] copy = new Object[content.length + 2];
+            System.arraycopy(content, 0, copy, 0, 2 * index);
+            copy[2 * index] = key;
+            copy[2 * index + 1] = value;
+            System.arraycopy(content, 2 * index, copy, 2 * index + 2, content.length - 2 * index);
+            return new BitmapNode(dataMap | bit, nodeMap, copy);
+        }
+
+        @Override
+        Node removed(Object key, int hash, int shift, Change change) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                if (!eq(key, content[2 * index])) {
+                    return this;
+                }
+                change.sizeDelta = -1;
+                Object[] copy = new Object[content.length - 2];
+                System.arraycopy(content, 0, copy, 0, 2 * index);
+                System.arraycopy(content, 2 * index + 2, copy, 2 * index, content.length - 2 * index - 2);
+                return new BitmapNode(dataMap ^ bit, nodeMap, copy);
+            }
+            if ((nodeMap & bit) != 0) {
+                Node sub = nodeAt(bit);
+                Node newSub = sub.removed(key, hash, shift + BITS, change);
+                if (newSub == sub) {
+                    return this;
+                }
+                if (newSub.payloadArity() == 1 && newSub.nodeArity() == 0) {
+                    return migrateToInline(bit, newSub.key(0), newSub.value(0));
+                }
+                return withNode(bit, newSub);
+            }
+            return this;
+        }
+
+        private Node migrateToNode(int bit, int dataIndex, Node sub) {
+            int oldPos = 2 * dataIndex;
+            int newPos = 2 * (dataArity() - 1) + nodeIndex(bit);
+            Object[] copy = new Object[content.length - 1];
+            System.arraycopy(content, 0, copy, 0, oldPos);
+            System.arraycopy(content, oldPos + 2, copy, oldPos, newPos - oldPos);
+            copy[newPos] = sub;
+            System.arraycopy(content, newPos + 2, copy, newPos + 1, content.length - newPos - 2);
+            return new BitmapNode(dataMap ^ bit, nodeMap | bit, copy);
+        }
+
+        private Node migrateToInline(int bit, Object key, Object value) {
+            int oldPos = dataArity() * 2 + nodeIndex(bit);
+            int newPos = 2 * dataIndex(bit);
+            Object[] copy = new Object[content.length + 1];
+            System.arraycopy(content, 0, copy, 0, newPos);
+            copy[newPos] = key;
+            copy[newPos + 1] = value;
+            System.arraycopy(content, newPos, copy, newPos + 2, oldPos - newPos);
+            System.arraycopy(content, oldPos + 1, copy, oldPos + 2, content.length - oldPos - 1);
+            return new BitmapNode(dataMap | bit, nodeMap ^ bit, copy);
+        }
+
+        private Node withNode(int bit, Node node) {
+            Object[] copy = content.clone();
+            copy[dataArity() * 2 + nodeIndex(bit)] = node;
+            return new BitmapNode(dataMap, nodeMap, copy);
+        }
+
+        private Node nodeAt(int bit) {
+            return (Node) content[dataArity() * 2 + nodeIndex(bit)];
+        }
+
+        private int dataIndex(int bit) {
+            return Integer.bitCount(dataMap & (bit - 1));
+        }
+
+        private int nodeIndex(int bit) {
+            return Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        private int dataArity() {
+            return Integer.bitCount(dataMap);
+        }
+
+        @Override
+        int payloadArity() {
+            return dataArity();
+        }
+
+        @Override
+        Object key(int index) {
+            return content[2 * index];
+        }
+
+        @Override
+        Object value(int index) {
+            return content[2 * index + 1];
+        }
+
+        @Override
+        int nodeArity() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        Node node(int index) {
+            return (Node) content[dataArity() * 2 + index];
+        }
+    }
+
+    /**
+     * Keys whose hashes are equal in all 32 bits.
+     */
+    private static final class CollisionNode extends Node {
+        private final int hash;
+        private final Object[] keys;
+        private final Object[] values;
+
+        CollisionNode(int hash, Object[] keys, Object[] values) {
+            this.hash = hash;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int index = indexOf(key);
+            return index < 0 ? NOT_FOUND : values[index];
+        }
+
+        @Override
+        Node updated(Object key, Object value, int hash, int shift, Change change) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (values[index] == value) {
+                    return this;
+                }
+                Object[] newValues = values.clone();
+                newValues[index] = value;
+                return new CollisionNode(hash, keys, newValues);
+            }
+            change.sizeDelta = 1;
+            Object[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+            Object[] newValues = Arrays.copyOf(values, values.length + 1);
+            newKeys[keys.length] = key;
+            newValues[values.length] = value;
+            return new CollisionNode(hash, newKeys, newValues);
+        }
+
+        @Override
+        Node removed(Object key, int hash, int shift, Change change) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            change.sizeDelta = -1;
+            Object[] newKeys = new Object[keys.length - 1];
+            Object[] newValues = new Object[values.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(values, 0, newValues, 0, index);
+            System.arraycopy(values, index + 1, newValues, index, values.length - index - 1);
+            return new CollisionNode(hash, newKeys, newValues);
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (eq(key, keys[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        int payloadArity() {
+            return keys.length;
+        }
+
+        @Override
+        Object key(int index) {
+            return keys[index];
+        }
+
+        @Override
+        Object value(int index) {
+            return values[index];
+        }
+
+        @Override
+        int nodeArity() {
+            return 0;
+        }
+
+        @Override
+        Node node(int index) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final ArrayDeque<Node> pending = new ArrayDeque<Node>();
+        private Node current;
+        private int index;
+
+        EntryIterator(Node root) {
+            current = root;
+            pushChildren(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index >= current.payloadArity()) {
+                if (pending.isEmpty()) {
+                    return false;
+                }
+                current = pending.pop();
+                index = 0;
+                pushChildren(current);
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = new SimpleImmutableEntry<K, V>((K) current.key(index), (V) current.value(index));
+            index++;
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+
+        private void pushChildren(Node node) {
+            for (int i = node.nodeArity() - 1; i >= 0; i--) {
+                pending.push(node.node(i));
+            }
+        }
+    }
+}
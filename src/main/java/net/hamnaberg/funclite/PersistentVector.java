@@ -0,0 +1,256 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list with structural sharing, stored as a 32-way trie.
+ * The vector is a window [start, end) into the trie, so tail and slice are O(1), while
+ * append, prepend and updated copy one path of at most log32(n) nodes.
+ * Slices keep the whole trie of the vector they were taken from reachable.
+ */
+public final class PersistentVector<A> extends AbstractList<A> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final int MAX_SHIFT = 30 - BITS;
+
+    private static final PersistentVector<Object> EMPTY = new PersistentVector<Object>(new Object[WIDTH], 0, WIDTH / 2, WIDTH / 2);
+
+    private final Object[] root;
+    private final int shift;
+    private final int start;
+    private final int end;
+
+    private PersistentVector(Object[] root, int shift, int start, int end) {
+        this.root = root;
+        this.shift = shift;
+        this.start = start;
+        this.end = end;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A> PersistentVector<A> empty() {
+        return (PersistentVector<A>) EMPTY;
+    }
+
+    public static <A> PersistentVector<A> of(A... values) {
+        return fromArray(values.clone());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A> PersistentVector<A> copyOf(Iterable<A> values) {
+        if (values instanceof PersistentVector) {
+            return (PersistentVector<A>) values;
+        }
+        return fromArray(CollectionOps.newArrayList(values).toArray());
+    }
+
+    private static <A> PersistentVector<A> fromArray(Object[] values) {
+        int size = values.length;
+        if (size == 0) {
+            return empty();
+        }
+        Object[] level = new Object[(size + MASK) >>> BITS];
+        for (int i = 0; i < level.length; i++) {
+            Object[] leaf = new Object[WIDTH];
+            System.arraycopy(values, i << BITS, leaf, 0, Math.min(WIDTH, size - (i << BITS)));
+            level[i] = leaf;
+        }
+        int shift = 0;
+        while (level.length > 1) {
+            Object[] parents = new Object[(level.length + MASK) >>> BITS];
+            for (int i = 0; i < parents.length; i++) {
+                Object[] node = new Object[WIDTH];
+                System.arraycopy(level, i << BITS, node, 0, Math.min(WIDTH, level.length - (i << BITS)));
+                parents[i] = node;
+            }
+            level = parents;
+            shift += BITS;
+        }
+        return new PersistentVector<A>((Object[]) level[0], shift, 0, size);
+    }
+
+    @Override
+    public int size() {
+        return end - start;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public A get(int index) {
+        checkIndex(index, size());
+        int pos = start + index;
+        return (A) leafFor(pos)[pos & MASK];
+    }
+
+    public PersistentVector<A> updated(int index, A value) {
+        checkIndex(index, size());
+        return new PersistentVector<A>(store(root, shift, start + index, value), shift, start, end);
+    }
+
+    public PersistentVector<A> append(A value) {
+        PersistentVector<A> v = this;
+        if (v.end == v.capacity()) {
+            v = v.isSparse() ? v.compact() : v;
+            v = v.end == v.capacity() ? v.grow(0) : v;
+        }
+        return new PersistentVector<A>(store(v.root, v.shift, v.end, value), v.shift, v.start, v.end + 1);
+    }
+
+    public PersistentVector<A> prepend(A value) {
+        PersistentVector<A> v = this;
+        if (v.start == 0) {
+            v = v.isSparse() ? v.compact() : v;
+            v = v.start == 0 ? v.grow(MASK) : v;
+        }
+        return new PersistentVector<A>(store(v.root, v.shift, v.start - 1, value), v.shift, v.start - 1, v.end);
+    }
+
+    /**
+     * Appends or prepends the elements of the shorter vector onto the longer one.
+     */
+    public PersistentVector<A> concat(PersistentVector<A> other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        PersistentVector<A> result;
+        if (other.size() <= size()) {
+            result = this;
+            for (A a : other) {
+                result = result.append(a);
+            }
+        }
+        else {
+            result = other;
+            for (int i = size() - 1; i >= 0; i--) {
+                result = result.prepend(get(i));
+            }
+        }
+        return result;
+    }
+
+    public PersistentVector<A> slice(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException(String.format("from: %s, to: %s, size: %s", fromIndex, toIndex, size()));
+        }
+        if (fromIndex == toIndex) {
+            return empty();
+        }
+        return new PersistentVector<A>(root, shift, start + fromIndex, start + toIndex);
+    }
+
+    public PersistentVector<A> tail() {
+        return isEmpty() ? this : slice(1, size());
+    }
+
+    @Override
+    public PersistentVector<A> subList(int fromIndex, int toIndex) {
+        return slice(fromIndex, toIndex);
+    }
+
+    @Override
+    public Iterator<A> iterator() {
+        return new Iterator<A>() {
+            private int pos = start;
+            private Object[] leaf;
+
+            @Override
+            public boolean hasNext() {
+                return pos < end;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public A next() {
+                if (pos >= end) {
+                    throw new NoSuchElementException();
+                }
+                if (leaf == null || (pos & MASK) == 0) {
+                    leaf = leafFor(pos);
+                }
+                return (A) leaf[pos++ & MASK];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Not supported");
+            }
+        };
+    }
+
+    private int capacity() {
+        return 1 << (shift + BITS);
+    }
+
+    private Object[] leafFor(int pos) {
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(pos >>> level) & MASK];
+        }
+        return node;
+    }
+
+    /**
+     * True when growing the trie would mostly add empty room, e.g. after many tails.
+     */
+    private boolean isSparse() {
+        return shift == MAX_SHIFT || size() < capacity() / 4;
+    }
+
+    private PersistentVector<A> compact() {
+        return isEmpty() ? PersistentVector.<A>empty() : PersistentVector.<A>fromArray(toArray());
+    }
+
+    /**
+     * Adds a level on top of the trie, with the current root at the given slot of the new root.
+     */
+    private PersistentVector<A> grow(int slot) {
+        if (shift == MAX_SHIFT) {
+            throw new IllegalStateException("PersistentVector cannot hold more than " + capacity() + " elements");
+        }
+        Object[] newRoot = new Object[WIDTH];
+        newRoot[slot] = root;
+        int offset = slot * capacity();
+        return new PersistentVector<A>(newRoot, shift + BITS, start + offset, end + offset);
+    }
+
+    private static Object[] store(Object[] node, int level, int pos, Object value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int index = (pos >>> level) & MASK;
+        if (level == 0) {
+            copy[index] = value;
+        }
+        else {
+            copy[index] = store((Object[]) copy[index], level - BITS, pos, value);
+        }
+        return copy;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Index: %s, Size: %s", index, size));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.Arrays;
+
+/**
+ * A chain of functions applied one after the other in a single loop.
+ * Adding a pipeline to a pipeline copies its steps instead of nesting it, and identity steps are dropped,
+ * so a chain of any length is one flat array and a call stack one level deep.
+ */
+public final class Pipeline<A, B> implements Function<A, B> {
+    private static final Pipeline<?, ?> EMPTY = new Pipeline<Object, Object>(newSteps(0));
+
+    private final Function<Object, Object>[] steps;
+
+    private Pipeline(Function<Object, Object>[] steps) {
+        this.steps = steps;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A> Pipeline<A, A> start() {
+        return (Pipeline<A, A>) EMPTY;
+    }
+
+    public static <A, B> Pipeline<A, B> of(Function<A, B> f) {
+        return Pipeline.<A>start().then(f);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <C> Pipeline<A, C> then(Function<B, C> f) {
+        Preconditions.checkNotNull(f);
+        if (f == Functions.identity()) {
+            return (Pipeline<A, C>) this;
+        }
+        Function<Object, Object>[] added;
+        if (f instanceof Pipeline) {
+            added = ((Pipeline<B, C>) f).steps;
+        }
+        else {
+            added = newSteps(1);
+            added[0] = (Function<Object, Object>) f;
+        }
+        if (added.length == 0) {
+            return (Pipeline<A, C>) this;
+        }
+        if (steps.length == 0 && f instanceof Pipeline) {
+            return (Pipeline<A, C>) f;
+        }
+        Function<Object, Object>[] next = Arrays.copyOf(steps, steps.length + added.length);
+        System.arraycopy(added, 0, next, steps.length, added.length);
+        return new Pipeline<A, C>(next);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object>[] newSteps(int size) {
+        return (Function<Object, Object>[]) new Function<?, ?>[size];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public B apply(A input) {
+        Object value = input;
+        for (Function<Object, Object> step : steps) {
+            value = step.apply(value);
+        }
+        return (B) value;
+    }
+
+    public int size() {
+        return steps.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Pipeline{steps=%d}", steps.length);
+    }
+}
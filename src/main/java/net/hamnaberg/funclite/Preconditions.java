@@ -18,7 +18,10 @@ package net.hamnaberg.funclite;
 
 public class Preconditions {
     public static <A> A checkNotNull(A input) {
-        return checkNotNull(input, "input was null");
+        if (input == null) {
+            throw new IllegalArgumentException("input was null");
+        }
+        return input;
     }
 
     public static <A> A checkNotNull(A input, String message, Object... args) {
@@ -33,4 +36,10 @@ public class Preconditions {
             throw new IllegalArgumentException(String.format(message, args));
         }
     }
+
+    public static void checkState(boolean pred, String message, Object... args) {
+        if (!pred) {
+            throw new IllegalStateException(String.format(message, args));
+        }
+    }
 }
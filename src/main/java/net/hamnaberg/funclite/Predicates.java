@@ -16,6 +16,13 @@
 
 package net.hamnaberg.funclite;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
 public final class Predicates {
     private Predicates() {
     }
@@ -31,23 +38,140 @@ public final class Predicates {
 
 
     public static <A> Predicate<A> and(final Predicate<A> p, final Predicate<A> p2) {
-        return new Predicate<A>() {
-            @Override
-            public boolean apply(A input) {
-                return p.apply(input) && p2.apply(input);
-            }
-        };
+        return allOf(p, p2);
     }
 
     public static <A> Predicate<A> or(final Predicate<A> p, final Predicate<A> p2) {
-        return new Predicate<A>() {
-            @Override
-            public boolean apply(A input) {
-                return p.apply(input) || p2.apply(input);
+        return anyOf(p, p2);
+    }
+
+    /**
+     * The fixed arity overloads spare callers the unchecked generic array of the varargs version.
+     */
+    public static <A> Predicate<A> allOf(Predicate<A> p, Predicate<A> p2) {
+        return allOf(listOf(p, p2));
+    }
+
+    public static <A> Predicate<A> allOf(Predicate<A> p, Predicate<A> p2, Predicate<A> p3) {
+        return allOf(listOf(p, p2, p3));
+    }
+
+    /**
+     * A predicate that is true when all clauses are, checked in order until one is false.
+     * Nested allOf and and predicates are flattened into a single array of clauses, and alwaysTrue clauses are dropped.
+     */
+    public static <A> Predicate<A> allOf(Predicate<A>... clauses) {
+        return allOf(Arrays.asList(clauses));
+    }
+
+    public static <A> Predicate<A> allOf(Iterable<? extends Predicate<A>> clauses) {
+        List<Predicate<A>> flat = new ArrayList<Predicate<A>>();
+        for (Predicate<A> clause : clauses) {
+            Preconditions.checkNotNull(clause);
+            if (clause instanceof AllOf) {
+                Collections.addAll(flat, ((AllOf<A>) clause).clauses);
             }
-        };
+            else if (clause == FALSE) {
+                return alwaysFalse();
+            }
+            else if (clause != TRUE) {
+                flat.add(clause);
+            }
+        }
+        switch (flat.size()) {
+            case 0:
+                return alwaysTrue();
+            case 1:
+                return flat.get(0);
+            default:
+                return new AllOf<A>(toArray(flat));
+        }
+    }
+
+    /**
+     * A predicate that is true when any clause is, checked in order until one is true.
+     * Nested anyOf and or predicates are flattened into a single array of clauses, and alwaysFalse clauses are dropped.
+     */
+    public static <A> Predicate<A> anyOf(Predicate<A>... clauses) {
+        return anyOf(Arrays.asList(clauses));
+    }
+
+    public static <A> Predicate<A> anyOf(Predicate<A> p, Predicate<A> p2) {
+        return anyOf(listOf(p, p2));
+    }
+
+    public static <A> Predicate<A> anyOf(Predicate<A> p, Predicate<A> p2, Predicate<A> p3) {
+        return anyOf(listOf(p, p2, p3));
+    }
+
+    public static <A> Predicate<A> anyOf(Iterable<? extends Predicate<A>> clauses) {
+        List<Predicate<A>> flat = new ArrayList<Predicate<A>>();
+        for (Predicate<A> clause : clauses) {
+            Preconditions.checkNotNull(clause);
+            if (clause instanceof AnyOf) {
+                Collections.addAll(flat, ((AnyOf<A>) clause).clauses);
+            }
+            else if (clause == TRUE) {
+                return alwaysTrue();
+            }
+            else if (clause != FALSE) {
+                flat.add(clause);
+            }
+        }
+        switch (flat.size()) {
+            case 0:
+                return alwaysFalse();
+            case 1:
+                return flat.get(0);
+            default:
+                return new AnyOf<A>(toArray(flat));
+        }
+    }
+
+    /**
+     * Makes an allOf or anyOf predicate reorder its clauses as it runs. About one call in 1024 is sampled, timing each
+     * clause evaluated and counting which one decides the result: false for allOf, true for anyOf. Sampled calls
+     * stop at the deciding clause like any other call. Every 64 such samples the clauses are sorted by time spent
+     * per decision, so cheap clauses that usually decide the outcome run first; a clause that has never been reached
+     * keeps its place behind the others. The clauses must be free of side effects, and each must be safe to evaluate
+     * without the ones before it, since the order changes. Other predicates are returned as they are.
+     */
+    public static <A> Predicate<A> adaptive(Predicate<A> predicate) {
+        if (predicate instanceof AllOf) {
+            return new Adaptive<A>(((AllOf<A>) predicate).clauses, true);
+        }
+        if (predicate instanceof AnyOf) {
+            return new Adaptive<A>(((AnyOf<A>) predicate).clauses, false);
+        }
+        return Preconditions.checkNotNull(predicate);
+    }
+
+    private static <A> List<Predicate<A>> listOf(Predicate<A> p, Predicate<A> p2) {
+        List<Predicate<A>> list = new ArrayList<Predicate<A>>(2);
+        list.add(p);
+        list.add(p2);
+        return list;
+    }
+
+    private static <A> List<Predicate<A>> listOf(Predicate<A> p, Predicate<A> p2, Predicate<A> p3) {
+        List<Predicate<A>> list = new ArrayList<Predicate<A>>(3);
+        list.add(p);
+        list.add(p2);
+        list.add(p3);
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <A> Predicate<A>[] toArray(List<Predicate<A>> list) {
+        return list.toArray((Predicate<A>[]) new Predicate<?>[list.size()]);
     }
 
+    /**
+     * See {@link Instrumentation}.
+     */
+    public static <A> Predicate<A> instrumented(String name, Predicate<A> p) {
+        return Instrumentation.defaults().predicate(name, p);
+    }
 
     @SuppressWarnings("unchecked")
     public static <A> Predicate<A> alwaysTrue() {
@@ -100,4 +224,142 @@ public final class Predicates {
         }
     };
 
+    static final class AllOf<A> implements Predicate<A> {
+        final Predicate<A>[] clauses;
+
+        AllOf(Predicate<A>[] clauses) {
+            this.clauses = clauses;
+        }
+
+        @Override
+        public boolean apply(A input) {
+            for (Predicate<A> clause : clauses) {
+                if (!clause.apply(input)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class AnyOf<A> implements Predicate<A> {
+        final Predicate<A>[] clauses;
+
+        AnyOf(Predicate<A>[] clauses) {
+            this.clauses = clauses;
+        }
+
+        @Override
+        public boolean apply(A input) {
+            for (Predicate<A> clause : clauses) {
+                if (clause.apply(input)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class Adaptive<A> implements Predicate<A> {
+        private static final int SAMPLE_MASK = 1023;
+        private static final int SAMPLES_PER_REORDER = 64;
+
+        private final boolean all;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Clause<A>[] order;
+        // only a sampling clock, lost updates do not matter
+        private int calls;
+        // guarded by the lock
+        private int samples;
+
+        @SuppressWarnings("unchecked")
+        Adaptive(Predicate<A>[] clauses, boolean all) {
+            this.all = all;
+            Clause<A>[] order = (Clause<A>[]) new Clause<?>[clauses.length];
+            for (int i = 0; i < clauses.length; i++) {
+                order[i] = new Clause<A>(clauses[i]);
+            }
+            this.order = order;
+        }
+
+        @Override
+        public boolean apply(A input) {
+            if ((++calls & SAMPLE_MASK) == 0 && lock.tryLock()) {
+                try {
+                    return sample(input);
+                }
+                finally {
+                    lock.unlock();
+                }
+            }
+            for (Clause<A> clause : order) {
+                if (clause.predicate.apply(input) != all) {
+                    return !all;
+                }
+            }
+            return all;
+        }
+
+        List<Predicate<A>> currentOrder() {
+            List<Predicate<A>> list = new ArrayList<Predicate<A>>();
+            for (Clause<A> clause : order) {
+                list.add(clause.predicate);
+            }
+            return list;
+        }
+
+        private boolean sample(A input) {
+            boolean result = all;
+            Clause<A>[] clauses = order;
+            for (Clause<A> clause : clauses) {
+                long start = System.nanoTime();
+                boolean value = clause.predicate.apply(input);
+                clause.nanos += System.nanoTime() - start;
+                clause.evaluated = true;
+                if (value != all) {
+                    clause.decisions++;
+                    result = !all;
+                    break;
+                }
+            }
+            if (++samples == SAMPLES_PER_REORDER) {
+                reorder(clauses);
+            }
+            return result;
+        }
+
+        private void reorder(Clause<A>[] clauses) {
+            Clause<A>[] sorted = clauses.clone();
+            Arrays.sort(sorted, new Comparator<Clause<A>>() {
+                @Override
+                public int compare(Clause<A> a, Clause<A> b) {
+                    return Double.compare(a.costPerDecision(), b.costPerDecision());
+                }
+            });
+            for (Clause<A> clause : sorted) {
+                clause.nanos /= 2;
+                clause.decisions /= 2;
+            }
+            samples = 0;
+            order = sorted;
+        }
+    }
+
+    static final class Clause<A> {
+        final Predicate<A> predicate;
+        long nanos;
+        long decisions;
+        boolean evaluated;
+
+        Clause(Predicate<A> predicate) {
+            this.predicate = predicate;
+        }
+
+        double costPerDecision() {
+            if (!evaluated) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return (nanos + 1.0) / (decisions + 1.0);
+        }
+    }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+/**
+ * The open addressing table behind {@link LongFunctionalMap} and {@link IntFunctionalMap}.
+ * Entry i has its key in slot 2i and its value in slot 2i + 1, probing is linear, and the table is at most
+ * three quarters full; the key 0 marks a free entry and is kept on the side. Keys and values pass through
+ * as longs, and each subclass stores them in slots of its own width.
+ */
+abstract class PrimitiveHashTable {
+    private final long mask;
+    private final Storage storage;
+    private int size;
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    PrimitiveHashTable(long capacity, Storage storage) {
+        this.mask = capacity - 1;
+        this.storage = storage;
+    }
+
+    abstract long key(long entry);
+
+    abstract long value(long entry);
+
+    abstract void set(long entry, long key, long value);
+
+    abstract void setValue(long entry, long value);
+
+    abstract long hash(long key);
+
+    /**
+     * An empty table of the same width.
+     */
+    abstract PrimitiveHashTable newTable(long capacity, Storage storage);
+
+    final int size() {
+        return size;
+    }
+
+    final long capacity() {
+        return mask + 1;
+    }
+
+    final Storage storage() {
+        return storage;
+    }
+
+    /**
+     * Tables derived from a mapped one go to direct memory, since the file belongs to the original.
+     */
+    final Storage derivedStorage() {
+        return storage.getKind() == Storage.Kind.MAPPED ? Storage.direct() : storage;
+    }
+
+    final boolean hasZeroKey() {
+        return hasZeroKey;
+    }
+
+    final long zeroValue() {
+        return zeroValue;
+    }
+
+    /**
+     * The entry holding a key other than 0, or -1.
+     */
+    final long indexOf(long key) {
+        long i = hash(key) & mask;
+        while (true) {
+            long k = key(i);
+            if (k == key) {
+                return i;
+            }
+            if (k == 0) {
+                return -1;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    final boolean containsKey(long key) {
+        return key == 0 ? hasZeroKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Adds the entry, replacing the value of an existing key. Call {@link #isFull()} afterwards and grow if it is.
+     */
+    final void put(long key, long value) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        long i = hash(key) & mask;
+        while (true) {
+            long k = key(i);
+            if (k == 0) {
+                set(i, key, value);
+                size++;
+                return;
+            }
+            if (k == key) {
+                setValue(i, value);
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds a key other than 0 at a known free entry, for copies that keep the layout of this table.
+     */
+    final void putAt(long entry, long key, long value) {
+        set(entry, key, value);
+        size++;
+    }
+
+    final boolean isFull() {
+        long capacity = capacity();
+        return size - (hasZeroKey ? 1 : 0) > capacity - capacity / 4;
+    }
+
+    final PrimitiveHashTable grow() {
+        Preconditions.checkState(storage.getKind() != Storage.Kind.MAPPED, "Mapped table is full with %s entries", size);
+        PrimitiveHashTable grown = newTable(capacity() * 2, storage);
+        for (long i = 0; i <= mask; i++) {
+            long key = key(i);
+            if (key != 0) {
+                grown.put(key, value(i));
+            }
+        }
+        if (hasZeroKey) {
+            grown.put(0, zeroValue);
+        }
+        return grown;
+    }
+
+    final boolean sameEntries(PrimitiveHashTable other) {
+        if (size != other.size || hasZeroKey != other.hasZeroKey || zeroValue != other.zeroValue) return false;
+        for (long i = 0; i <= mask; i++) {
+            long key = key(i);
+            if (key != 0) {
+                long index = other.indexOf(key);
+                if (index < 0 || other.value(index) != value(i)) return false;
+            }
+        }
+        return true;
+    }
+
+    final int entriesHash() {
+        long result = hasZeroKey ? 31 + zeroValue : 0;
+        for (long i = 0; i <= mask; i++) {
+            long key = key(i);
+            if (key != 0) {
+                result += key ^ hash(value(i));
+            }
+        }
+        return (int) (result ^ (result >>> 32));
+    }
+
+    static long capacityFor(long expectedSize) {
+        long capacity = 4;
+        while (capacity - capacity / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Turns values into records of bytes and back, for {@link MappedList}.
+ */
+public interface RecordCodec<A> {
+    /**
+     * The length of every record, or -1 when records differ in length.
+     */
+    int fixedLength();
+
+    void encode(A value, DataOutput out) throws IOException;
+
+    /**
+     * Reads the value from the record, which lies between the position and the limit of the buffer.
+     * The buffer may be a view of a mapped file or a reused array, so the value must not keep it.
+     */
+    A decode(ByteBuffer record);
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+public final class RecordCodecs {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private RecordCodecs() {
+    }
+
+    public static RecordCodec<Long> longs() {
+        return LONGS;
+    }
+
+    public static RecordCodec<Integer> ints() {
+        return INTS;
+    }
+
+    public static RecordCodec<String> utf8() {
+        return UTF8_STRINGS;
+    }
+
+    private static final RecordCodec<Long> LONGS = new RecordCodec<Long>() {
+        @Override
+        public int fixedLength() {
+            return 8;
+        }
+
+        @Override
+        public void encode(Long value, DataOutput out) throws IOException {
+            out.writeLong(value);
+        }
+
+        @Override
+        public Long decode(ByteBuffer record) {
+            return record.getLong(record.position());
+        }
+    };
+
+    private static final RecordCodec<Integer> INTS = new RecordCodec<Integer>() {
+        @Override
+        public int fixedLength() {
+            return 4;
+        }
+
+        @Override
+        public void encode(Integer value, DataOutput out) throws IOException {
+            out.writeInt(value);
+        }
+
+        @Override
+        public Integer decode(ByteBuffer record) {
+            return record.getInt(record.position());
+        }
+    };
+
+    private static final RecordCodec<String> UTF8_STRINGS = new RecordCodec<String>() {
+        @Override
+        public int fixedLength() {
+            return -1;
+        }
+
+        @Override
+        public void encode(String value, DataOutput out) throws IOException {
+            out.write(value.getBytes(UTF8));
+        }
+
+        @Override
+        public String decode(ByteBuffer record) {
+            return UTF8.decode(record).toString();
+        }
+    };
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * The memory behind {@link LongSlots} and {@link IntSlots} in direct or mapped storage: 1GB pages,
+ * since a single buffer is limited to 2GB. Slots never straddle pages because the page size is a multiple
+ * of the slot width.
+ */
+final class Slots {
+    static final int PAGE_SHIFT = 30;
+    static final long PAGE_MASK = (1L << PAGE_SHIFT) - 1;
+
+    private Slots() {
+    }
+
+    static int heapCount(long count) {
+        Preconditions.checkArgument(count <= Integer.MAX_VALUE - 8, "Too many slots for heap storage: %s", count);
+        return (int) count;
+    }
+
+    static ByteBuffer[] pages(long bytes, Storage storage) {
+        return storage.getKind() == Storage.Kind.MAPPED ? mapped(bytes, storage) : direct(bytes);
+    }
+
+    private static ByteBuffer[] direct(long bytes) {
+        ByteBuffer[] pages = new ByteBuffer[pageCount(bytes)];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = ByteBuffer.allocateDirect(pageSize(bytes, i)).order(ByteOrder.nativeOrder());
+        }
+        return pages;
+    }
+
+    private static ByteBuffer[] mapped(long bytes, Storage storage) {
+        try {
+            RandomAccessFile file = new RandomAccessFile(storage.getFile(), "rw");
+            try {
+                file.setLength(0);
+                file.setLength(bytes);
+                FileChannel channel = file.getChannel();
+                ByteBuffer[] pages = new ByteBuffer[pageCount(bytes)];
+                for (int i = 0; i < pages.length; i++) {
+                    pages[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i << PAGE_SHIFT, pageSize(bytes, i)).order(ByteOrder.nativeOrder());
+                }
+                return pages;
+            }
+            finally {
+                file.close();
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(String.format("Could not map %s", storage.getFile()), e);
+        }
+    }
+
+    private static int pageCount(long bytes) {
+        return (int) ((bytes + PAGE_MASK) >>> PAGE_SHIFT);
+    }
+
+    private static int pageSize(long bytes, int page) {
+        return (int) Math.min(1L << PAGE_SHIFT, bytes - ((long) page << PAGE_SHIFT));
+    }
+}
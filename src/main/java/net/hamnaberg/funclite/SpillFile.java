@@ -0,0 +1,147 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A temporary file of records, each the encoded length followed by the encoded value.
+ * The file is created on the first write and can be read any number of times once writing is done.
+ */
+final class SpillFile<A> {
+    private final RecordCodec<A> codec;
+    private final Spilling spilling;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream encoder = new DataOutputStream(bytes);
+    private final List<Closeable> readers = new ArrayList<Closeable>();
+    private File file;
+    private DataOutputStream out;
+
+    SpillFile(RecordCodec<A> codec, Spilling spilling) {
+        this.codec = codec;
+        this.spilling = spilling;
+    }
+
+    void write(A value) {
+        try {
+            if (file == null) {
+                file = File.createTempFile("funclite-spill", ".tmp", spilling.getDirectory());
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 15));
+            }
+            Preconditions.checkState(out != null, "%s has already been read", file);
+            bytes.reset();
+            codec.encode(value, encoder);
+            encoder.flush();
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            spilling.stats().wrote(4 + bytes.size());
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Could not spill to disk", e);
+        }
+    }
+
+    /**
+     * Reads the records in write order, ending writing on the first call.
+     */
+    Iterator<A> read() {
+        try {
+            if (file == null) {
+                return Collections.<A>emptyList().iterator();
+            }
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 15));
+            synchronized (readers) {
+                readers.add(in);
+            }
+            return new LazyIterator<A>() {
+                private byte[] buffer = new byte[64];
+
+                @Override
+                protected A computeNext() {
+                    try {
+                        int length;
+                        try {
+                            length = in.readInt();
+                        } catch (EOFException e) {
+                            in.close();
+                            synchronized (readers) {
+                                readers.remove(in);
+                            }
+                            return endOfData();
+                        }
+                        if (buffer.length < length) {
+                            buffer = new byte[Math.max(length, buffer.length * 2)];
+                        }
+                        in.readFully(buffer, 0, length);
+                        return codec.decode(ByteBuffer.wrap(buffer, 0, length));
+                    } catch (IOException e) {
+                        throw new IllegalStateException(String.format("Could not read %s", file), e);
+                    }
+                }
+            };
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(String.format("Could not read %s", file), e);
+        }
+    }
+
+    /**
+     * Closes open readers and removes the file.
+     */
+    void delete() {
+        try {
+            if (out != null) {
+                out.close();
+            }
+            synchronized (readers) {
+                for (Closeable reader : readers) {
+                    reader.close();
+                }
+                readers.clear();
+            }
+        }
+        catch (IOException e) {
+            // the file is deleted anyway
+        }
+        finally {
+            out = null;
+            if (file != null && !file.delete() && file.exists()) {
+                file.deleteOnExit();
+            }
+            file = null;
+        }
+    }
+}
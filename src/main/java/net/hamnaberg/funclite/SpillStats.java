@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the operations run with one {@link Spilling} have written to disk.
+ */
+public final class SpillStats {
+    private final AtomicLong spills = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    SpillStats() {
+    }
+
+    void spilled() {
+        spills.incrementAndGet();
+    }
+
+    void wrote(long bytes) {
+        records.incrementAndGet();
+        this.bytes.addAndGet(bytes);
+    }
+
+    /**
+     * The number of times an input or a partition went over the limit and was split into partition files.
+     */
+    public long getSpills() {
+        return spills.get();
+    }
+
+    public long getSpilledRecords() {
+        return records.get();
+    }
+
+    public long getSpilledBytes() {
+        return bytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SpillStats{spills=%s, records=%s, bytes=%s}", getSpills(), getSpilledRecords(), getSpilledBytes());
+    }
+}
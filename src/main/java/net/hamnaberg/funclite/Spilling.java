@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.io.File;
+
+/**
+ * Settings for the external operations in {@link CollectionOps}, which move data to temporary files
+ * when more than maxInMemory entries would be held on the heap. Entries are elements or distinct keys,
+ * depending on the operation. Spilled data is split into partitions by key hash, and each partition is
+ * processed in turn, split again if it is still too large. The external sort writes sorted runs of
+ * maxInMemory elements instead, see {@link ExternalSorted}.
+ * Each settings object keeps its own {@link SpillStats}, shared by every operation run with it.
+ */
+public final class Spilling {
+    public static final long DEFAULT_MAX_IN_MEMORY = 1000000;
+    public static final int DEFAULT_PARTITIONS = 64;
+
+    private final long maxInMemory;
+    private final int partitions;
+    private final File directory;
+    private final boolean firstSeenOrder;
+    private final SpillStats stats = new SpillStats();
+
+    private Spilling(long maxInMemory, int partitions, File directory, boolean firstSeenOrder) {
+        this.maxInMemory = maxInMemory;
+        this.partitions = partitions;
+        this.directory = directory;
+        this.firstSeenOrder = firstSeenOrder;
+    }
+
+    /**
+     * A new settings object on each call, so the stats only cover the operations run with it.
+     */
+    public static Spilling defaults() {
+        return new Spilling(DEFAULT_MAX_IN_MEMORY, DEFAULT_PARTITIONS, null, true);
+    }
+
+    public Spilling withMaxInMemory(long maxInMemory) {
+        Preconditions.checkArgument(maxInMemory > 0, "maxInMemory must be positive, was %s", maxInMemory);
+        return new Spilling(maxInMemory, partitions, directory, firstSeenOrder);
+    }
+
+    public Spilling withPartitions(int partitions) {
+        Preconditions.checkArgument(partitions > 1, "partitions must be more than one, was %s", partitions);
+        return new Spilling(maxInMemory, partitions, directory, firstSeenOrder);
+    }
+
+    /**
+     * Where spill files go, instead of java.io.tmpdir.
+     */
+    public Spilling withDirectory(File directory) {
+        return new Spilling(maxInMemory, partitions, Preconditions.checkNotNull(directory), firstSeenOrder);
+    }
+
+    /**
+     * Whether result maps keep the keys in first-seen order, as the in-memory groupBy does. On by default;
+     * turning it off saves sorting the keys when data was spilled.
+     */
+    public Spilling withFirstSeenOrder(boolean firstSeenOrder) {
+        return new Spilling(maxInMemory, partitions, directory, firstSeenOrder);
+    }
+
+    public long getMaxInMemory() {
+        return maxInMemory;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public boolean isFirstSeenOrder() {
+        return firstSeenOrder;
+    }
+
+    public SpillStats stats() {
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Spilling{maxInMemory=%s, partitions=%s, directory=%s, firstSeenOrder=%s}", maxInMemory, partitions, directory, firstSeenOrder);
+    }
+}
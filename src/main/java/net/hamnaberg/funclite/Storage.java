@@ -0,0 +1,71 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.io.File;
+
+/**
+ * Where {@link LongFunctionalMap} and {@link IntFunctionalMap} keep their table.
+ * The heap uses primitive arrays. Direct and mapped storage live outside the Java heap in 1GB pages,
+ * so a large table adds nothing for the garbage collector to trace or copy; direct memory is limited
+ * by -XX:MaxDirectMemorySize, a mapped file only by the disk and the page cache.
+ */
+public final class Storage {
+    enum Kind {
+        HEAP, DIRECT, MAPPED
+    }
+
+    private static final Storage HEAP = new Storage(Kind.HEAP, null);
+    private static final Storage DIRECT = new Storage(Kind.DIRECT, null);
+
+    private final Kind kind;
+    private final File file;
+
+    private Storage(Kind kind, File file) {
+        this.kind = kind;
+        this.file = file;
+    }
+
+    public static Storage heap() {
+        return HEAP;
+    }
+
+    public static Storage direct() {
+        return DIRECT;
+    }
+
+    /**
+     * Maps the table from the given file, which is created or overwritten.
+     * Maps derived from a mapped one, for example by filterKeys, use direct storage.
+     */
+    public static Storage mapped(File file) {
+        return new Storage(Kind.MAPPED, Preconditions.checkNotNull(file));
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    @Override
+    public String toString() {
+        return file == null ? String.format("Storage{%s}", kind) : String.format("Storage{%s, %s}", kind, file);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A bounded queue between a producer that pushes at its own pace and a subscriber that pulls with request(n).
+ * Whoever calls offer, request or complete drains the queue, one thread at a time.
+ */
+final class StreamBuffer<A> implements Subscription {
+    private final int capacity;
+    private final FunctionalStream.Overflow overflow;
+    private final ArrayDeque<A> queue;
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicReference<Subscription> upstream = new AtomicReference<Subscription>();
+    private final AtomicBoolean terminated = new AtomicBoolean();
+    private volatile Subscriber<? super A> downstream;
+    private volatile boolean done;
+    private volatile boolean cancelled;
+    private Throwable error;
+
+    StreamBuffer(int capacity, FunctionalStream.Overflow overflow) {
+        Preconditions.checkArgument(capacity > 0, "capacity must be positive, was %s", capacity);
+        this.capacity = capacity;
+        this.overflow = Preconditions.checkNotNull(overflow);
+        this.queue = new ArrayDeque<A>(Math.min(capacity, 1024));
+    }
+
+    void subscribe(Subscriber<? super A> subscriber) {
+        downstream = subscriber;
+        subscriber.onSubscribe(this);
+        drain();
+    }
+
+    /**
+     * The subscription to cancel when the subscriber cancels.
+     */
+    void setUpstream(Subscription subscription) {
+        if (!upstream.compareAndSet(null, subscription) || cancelled) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * @return false when the value was dropped or rejected because the buffer is full.
+     */
+    boolean offer(A value) {
+        Preconditions.checkNotNull(value);
+        if (done || cancelled) {
+            return false;
+        }
+        boolean accepted = true;
+        synchronized (queue) {
+            if (queue.size() < capacity) {
+                queue.addLast(value);
+            }
+            else if (overflow == FunctionalStream.Overflow.LATEST) {
+                queue.removeFirst();
+                queue.addLast(value);
+            }
+            else {
+                accepted = false;
+            }
+        }
+        if (!accepted && overflow == FunctionalStream.Overflow.ERROR) {
+            cancelUpstream();
+            fail(new IllegalStateException(String.format("Buffer of %s elements is full", capacity)));
+        }
+        drain();
+        return accepted;
+    }
+
+    void complete() {
+        done = true;
+        drain();
+    }
+
+    void fail(Throwable e) {
+        if (!done) {
+            error = e;
+            done = true;
+            if (overflow == FunctionalStream.Overflow.ERROR) {
+                clear();
+            }
+        }
+        drain();
+    }
+
+    int size() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            // not cancelled, or drain would never deliver the error; an error wins over a pending completion
+            cancelUpstream();
+            clear();
+            if (error == null) {
+                error = new IllegalArgumentException(String.format("request must be positive, was %s", n));
+            }
+            done = true;
+            drain();
+            return;
+        }
+        long current;
+        do {
+            current = requested.get();
+            if (current == Long.MAX_VALUE) {
+                break;
+            }
+        } while (!requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        cancelUpstream();
+        clear();
+    }
+
+    private void cancelUpstream() {
+        Subscription subscription = upstream.getAndSet(CANCELLED);
+        if (subscription != null && subscription != CANCELLED) {
+            subscription.cancel();
+        }
+    }
+
+    private void clear() {
+        synchronized (queue) {
+            queue.clear();
+        }
+    }
+
+    private A poll() {
+        synchronized (queue) {
+            return queue.pollFirst();
+        }
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Subscriber<? super A> subscriber = downstream;
+            if (subscriber != null && !cancelled) {
+                long r = requested.get();
+                long emitted = 0;
+                while (emitted != r && !cancelled) {
+                    boolean finished = done;
+                    A value = poll();
+                    if (value == null) {
+                        if (finished) {
+                            terminate(subscriber);
+                        }
+                        break;
+                    }
+                    subscriber.onNext(value);
+                    emitted++;
+                }
+                if (emitted == r && done && size() == 0) {
+                    terminate(subscriber);
+                }
+                if (emitted != 0 && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void terminate(Subscriber<? super A> subscriber) {
+        if (!cancelled && terminated.compareAndSet(false, true)) {
+            if (error != null) {
+                subscriber.onError(error);
+            }
+            else {
+                subscriber.onComplete();
+            }
+        }
+    }
+
+    static final Subscription CANCELLED = new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class Suppliers {
+    private Suppliers() {
+    }
+
+    public static <A> Supplier<A> ofInstance(final A value) {
+        return new Supplier<A>() {
+            @Override
+            public A get() {
+                return value;
+            }
+        };
+    }
+
+    public static <A, B> Supplier<B> compose(final Supplier<A> supplier, final Function<A, B> f) {
+        Preconditions.checkNotNull(supplier);
+        Preconditions.checkNotNull(f);
+        return new Supplier<B>() {
+            @Override
+            public B get() {
+                return f.apply(supplier.get());
+            }
+        };
+    }
+
+    /**
+     * Calls the supplier once, on the first get, and returns that value from then on.
+     * After the first call a get is a single volatile read.
+     */
+    public static <A> Supplier<A> memoize(Supplier<A> supplier) {
+        if (supplier instanceof MemoizingSupplier) {
+            return supplier;
+        }
+        return new MemoizingSupplier<A>(Preconditions.checkNotNull(supplier));
+    }
+
+    /**
+     * Caches the value for the given duration. The first get after it has expired calls the supplier again
+     * while other callers wait for the new value.
+     */
+    public static <A> Supplier<A> memoizeWithExpiration(Supplier<A> supplier, long duration, TimeUnit unit) {
+        return new ExpiringSupplier<A>(supplier, unit.toNanos(duration), null, Ticker.SYSTEM);
+    }
+
+    /**
+     * Caches the value for the given duration and reloads it ahead of time on the executor.
+     * Once three quarters of the duration have passed the next get starts a reload and, like every get
+     * until the reload is done, returns the current value without waiting. Callers only wait when the value
+     * has actually expired, which happens when reloads keep failing or take longer than the remaining quarter.
+     * A failed reload is retried halfway through the time that is left.
+     */
+    public static <A> Supplier<A> memoizeWithExpiration(Supplier<A> supplier, long duration, TimeUnit unit, Executor refresher) {
+        return new ExpiringSupplier<A>(supplier, unit.toNanos(duration), Preconditions.checkNotNull(refresher), Ticker.SYSTEM);
+    }
+
+    static <A> Supplier<A> memoizeWithExpiration(Supplier<A> supplier, long duration, TimeUnit unit, Executor refresher, Ticker ticker) {
+        return new ExpiringSupplier<A>(supplier, unit.toNanos(duration), refresher, ticker);
+    }
+
+    private static final class Holder<A> {
+        final A value;
+
+        Holder(A value) {
+            this.value = value;
+        }
+    }
+
+    private static final class MemoizingSupplier<A> implements Supplier<A> {
+        private Supplier<A> delegate;
+        private volatile Holder<A> holder;
+
+        MemoizingSupplier(Supplier<A> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public A get() {
+            Holder<A> h = holder;
+            if (h == null) {
+                synchronized (this) {
+                    h = holder;
+                    if (h == null) {
+                        h = new Holder<A>(delegate.get());
+                        holder = h;
+                        delegate = null;
+                    }
+                }
+            }
+            return h.value;
+        }
+
+        @Override
+        public String toString() {
+            Holder<A> h = holder;
+            return h == null ? "Suppliers.memoize(<not loaded>)" : String.format("Suppliers.memoize(%s)", h.value);
+        }
+    }
+
+    private static final class Entry<A> {
+        final A value;
+        final long refreshAt;
+        final long expiresAt;
+
+        Entry(A value, long refreshAt, long expiresAt) {
+            this.value = value;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class ExpiringSupplier<A> implements Supplier<A> {
+        private final Supplier<A> delegate;
+        private final long durationNanos;
+        private final Executor refresher;
+        private final Ticker ticker;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile Entry<A> entry;
+
+        ExpiringSupplier(Supplier<A> delegate, long durationNanos, Executor refresher, Ticker ticker) {
+            Preconditions.checkArgument(durationNanos > 0, "duration must be positive, was %s", durationNanos);
+            this.delegate = Preconditions.checkNotNull(delegate);
+            this.durationNanos = durationNanos;
+            this.refresher = refresher;
+            this.ticker = ticker;
+        }
+
+        @Override
+        public A get() {
+            Entry<A> e = entry;
+            long now = ticker.read();
+            if (e != null && now - e.refreshAt < 0) {
+                return e.value;
+            }
+            if (e != null && now - e.expiresAt < 0) {
+                refreshAhead();
+                return e.value;
+            }
+            synchronized (this) {
+                e = entry;
+                if (e == null || ticker.read() - e.expiresAt >= 0) {
+                    e = load();
+                }
+                return e.value;
+            }
+        }
+
+        private Entry<A> load() {
+            A value = delegate.get();
+            long now = ticker.read();
+            Entry<A> e = new Entry<A>(value, refresher == null ? now + durationNanos : now + durationNanos - durationNanos / 4, now + durationNanos);
+            entry = e;
+            return e;
+        }
+
+        private void refreshAhead() {
+            if (!refreshing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                refresher.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            load();
+                        }
+                        catch (RuntimeException e) {
+                            retryLater();
+                        }
+                        finally {
+                            refreshing.set(false);
+                        }
+                    }
+                });
+            }
+            catch (RejectedExecutionException e) {
+                retryLater();
+                refreshing.set(false);
+            }
+        }
+
+        private void retryLater() {
+            synchronized (this) {
+                Entry<A> e = entry;
+                long now = ticker.read();
+                if (e != null && now - e.expiresAt < 0) {
+                    entry = new Entry<A>(e.value, now + (e.expiresAt - now) / 2, e.expiresAt);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Suppliers.memoizeWithExpiration(%s, %s ns)", delegate, durationNanos);
+        }
+    }
+}
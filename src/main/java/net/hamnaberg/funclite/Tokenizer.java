@@ -0,0 +1,378 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lazily splits a CharSequence with the same results as {@link String#split(String)}:
+ * trailing empty tokens are dropped and input without any separator is returned whole.
+ * Separators without regex metacharacters are matched literally, without a regex;
+ * other separators are compiled once and cached.
+ * A {@link Cursor} walks the tokens as offsets into the input without creating substrings.
+ */
+public final class Tokenizer {
+    private static final String METACHARACTERS = ".$|()[{^?*+\\";
+    private static final int MAX_CACHED_PATTERNS = 256;
+    private static final ConcurrentMap<String, Pattern> PATTERNS = new ConcurrentHashMap<String, Pattern>();
+
+    private final String literal;
+    private final Pattern pattern;
+    private final boolean trim;
+    private final int limit;
+
+    private Tokenizer(String literal, Pattern pattern, boolean trim, int limit) {
+        this.literal = literal;
+        this.pattern = pattern;
+        this.trim = trim;
+        this.limit = limit;
+    }
+
+    /**
+     * A tokenizer for a separator regex, as accepted by {@link String#split(String)}.
+     */
+    public static Tokenizer on(String separator) {
+        Preconditions.checkNotNull(separator, "separator was null");
+        if (separator.length() == 2 && separator.charAt(0) == '\\' && !Character.isLetterOrDigit(separator.charAt(1))) {
+            return onLiteral(separator.substring(1));
+        }
+        if (separator.length() > 0 && !hasMetacharacters(separator)) {
+            return onLiteral(separator);
+        }
+        return new Tokenizer(null, compile(separator), false, Integer.MAX_VALUE);
+    }
+
+    public static Tokenizer onLiteral(String separator) {
+        Preconditions.checkArgument(separator != null && separator.length() > 0, "separator must be non-empty");
+        return new Tokenizer(separator, null, false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes leading and trailing whitespace from each token, like {@link String#trim()}.
+     */
+    public Tokenizer trimResults() {
+        return new Tokenizer(literal, pattern, true, limit);
+    }
+
+    /**
+     * Stops after the first maxTokens tokens without scanning the rest of the input.
+     */
+    public Tokenizer limit(int maxTokens) {
+        Preconditions.checkArgument(maxTokens >= 0, "maxTokens must not be negative, was %s", maxTokens);
+        return new Tokenizer(literal, pattern, trim, maxTokens);
+    }
+
+    public Iterable<String> split(final CharSequence input) {
+        Preconditions.checkNotNull(input, "input was null");
+        return new Iterable<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                final Cursor cursor = cursor(input);
+                return new Iterator<String>() {
+                    private Boolean hasNext;
+
+                    @Override
+                    public boolean hasNext() {
+                        if (hasNext == null) {
+                            hasNext = cursor.next();
+                        }
+                        return hasNext;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        hasNext = null;
+                        return cursor.toString();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException("Not allowed");
+                    }
+                };
+            }
+
+            @Override
+            public String toString() {
+                return CollectionOps.mkString(this, "[", ",", "]");
+            }
+        };
+    }
+
+    public Cursor cursor(CharSequence input) {
+        Preconditions.checkNotNull(input, "input was null");
+        Finder finder = literal != null ? new LiteralFinder(input, literal) : new PatternFinder(pattern.matcher(input));
+        return new Cursor(input, finder, trim, limit);
+    }
+
+    private static boolean hasMetacharacters(String separator) {
+        for (int i = 0; i < separator.length(); i++) {
+            if (METACHARACTERS.indexOf(separator.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Pattern compile(String regex) {
+        Pattern pattern = PATTERNS.get(regex);
+        if (pattern == null) {
+            if (PATTERNS.size() >= MAX_CACHED_PATTERNS) {
+                PATTERNS.clear();
+            }
+            pattern = Pattern.compile(regex);
+            PATTERNS.putIfAbsent(regex, pattern);
+        }
+        return pattern;
+    }
+
+    /**
+     * The current token of a tokenizer, as offsets into the input. The cursor itself is the token's
+     * CharSequence and is reused for every token, so nothing is copied until toString is called.
+     */
+    public static final class Cursor implements CharSequence {
+        private final CharSequence input;
+        private final Finder finder;
+        private final boolean trim;
+        private final int limit;
+
+        private int index;
+        private boolean exhausted;
+        private boolean whole;
+        private int rawStart;
+        private int rawEnd;
+
+        private int pendingEmpty;
+        private int pendingEmptyAt;
+        private boolean hasPending;
+        private int pendingStart;
+        private int pendingEnd;
+
+        private int count;
+        private int start;
+        private int end;
+
+        private Cursor(CharSequence input, Finder finder, boolean trim, int limit) {
+            this.input = input;
+            this.finder = finder;
+            this.trim = trim;
+            this.limit = limit;
+        }
+
+        /**
+         * Moves to the next token.
+         * @return false when there are no more tokens.
+         */
+        public boolean next() {
+            if (count >= limit) {
+                return false;
+            }
+            if (pendingEmpty > 0) {
+                pendingEmpty--;
+                return emit(pendingEmptyAt, pendingEmptyAt);
+            }
+            if (hasPending) {
+                hasPending = false;
+                return emit(pendingStart, pendingEnd);
+            }
+            if (!nextRaw()) {
+                return false;
+            }
+            if (rawStart == rawEnd && !whole) {
+                int emptyAt = rawStart;
+                int empties = 1;
+                while (nextRaw()) {
+                    if (rawStart != rawEnd) {
+                        hasPending = true;
+                        pendingStart = rawStart;
+                        pendingEnd = rawEnd;
+                        break;
+                    }
+                    empties++;
+                }
+                if (!hasPending) {
+                    return false;
+                }
+                pendingEmpty = empties - 1;
+                pendingEmptyAt = emptyAt;
+                return emit(emptyAt, emptyAt);
+            }
+            return emit(rawStart, rawEnd);
+        }
+
+        public int start() {
+            return start;
+        }
+
+        public int end() {
+            return end;
+        }
+
+        public boolean contentEquals(CharSequence other) {
+            if (other.length() != length()) {
+                return false;
+            }
+            for (int i = 0; i < other.length(); i++) {
+                if (other.charAt(i) != input.charAt(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length()) {
+                throw new IndexOutOfBoundsException(String.format("Index: %s, Length: %s", index, length()));
+            }
+            return input.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > length() || from > to) {
+                throw new IndexOutOfBoundsException(String.format("from: %s, to: %s, length: %s", from, to, length()));
+            }
+            return input.subSequence(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return input.subSequence(start, end).toString();
+        }
+
+        private boolean emit(int from, int to) {
+            if (trim) {
+                while (from < to && input.charAt(from) <= ' ') {
+                    from++;
+                }
+                while (to > from && input.charAt(to - 1) <= ' ') {
+                    to--;
+                }
+            }
+            start = from;
+            end = to;
+            count++;
+            return true;
+        }
+
+        /**
+         * The raw tokens of Pattern.split: the text between matches, then the remainder.
+         */
+        private boolean nextRaw() {
+            if (exhausted) {
+                return false;
+            }
+            while (finder.find()) {
+                if (index == 0 && finder.start == 0 && finder.end == 0) {
+                    continue;
+                }
+                rawStart = index;
+                rawEnd = finder.start;
+                index = finder.end;
+                return true;
+            }
+            exhausted = true;
+            whole = index == 0;
+            rawStart = index;
+            rawEnd = input.length();
+            return true;
+        }
+    }
+
+    private static abstract class Finder {
+        int start;
+        int end;
+
+        abstract boolean find();
+    }
+
+    private static final class LiteralFinder extends Finder {
+        private final CharSequence input;
+        private final String separator;
+
+        LiteralFinder(CharSequence input, String separator) {
+            this.input = input;
+            this.separator = separator;
+        }
+
+        @Override
+        boolean find() {
+            int found = indexOf(end);
+            if (found < 0) {
+                return false;
+            }
+            start = found;
+            end = found + separator.length();
+            return true;
+        }
+
+        private int indexOf(int from) {
+            if (input instanceof String) {
+                return ((String) input).indexOf(separator, from);
+            }
+            char first = separator.charAt(0);
+            int last = input.length() - separator.length();
+            for (int i = from; i <= last; i++) {
+                if (input.charAt(i) == first && regionMatches(i)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean regionMatches(int offset) {
+            for (int i = 1; i < separator.length(); i++) {
+                if (input.charAt(offset + i) != separator.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class PatternFinder extends Finder {
+        private final Matcher matcher;
+
+        PatternFinder(Matcher matcher) {
+            this.matcher = matcher;
+        }
+
+        @Override
+        boolean find() {
+            if (!matcher.find()) {
+                return false;
+            }
+            start = matcher.start();
+            end = matcher.end();
+            return true;
+        }
+    }
+}
@@ -18,14 +18,30 @@ package net.hamnaberg.funclite;
 
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 public class CollectionOpsTest {
     @Test
@@ -66,6 +82,57 @@ public class CollectionOpsTest {
         assertThat(CollectionOps.mkString(numbers, "(", ":", ")"), equalTo("(1:2:3:4:5)"));
     }
 
+    @Test
+    public void mkStringWithLongFirstElement() throws Exception {
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            header.append('h');
+        }
+        List<String> values = new ArrayList<String>();
+        values.add(header.toString());
+        for (int i = 0; i < 1000000; i++) {
+            values.add(i % 10 == 0 ? null : "v");
+        }
+        assertThat(CollectionOps.mkString(values, ",").length(), is(10000 + 900000 * 2));
+        StringBuilder sb = CollectionOps.appendTo(new StringBuilder(), values, "", ",", "");
+        assertThat(sb.capacity() < 3 * sb.length(), is(true));
+    }
+
+    @Test
+    public void appendToWriter() throws Exception {
+        List<Object> values = CollectionOps.<Object>of(1, null, "two", new StringBuilder("three"));
+        StringWriter writer = CollectionOps.appendTo(new StringWriter(), values, "<", "|", ">");
+        assertThat(writer.toString(), equalTo("<1|two|three>"));
+    }
+
+    @Test
+    public void writeToChannel() throws Exception {
+        List<String> values = CollectionOps.newArrayList();
+        for (int i = 0; i < 5000; i++) {
+            values.add("v\u00e6" + i);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Charset utf8 = Charset.forName("UTF-8");
+        CollectionOps.writeTo(Channels.newChannel(out), utf8, values, "[", ",", "]");
+        assertThat(new String(out.toByteArray(), utf8), equalTo(CollectionOps.mkString(values, "[", ",", "]")));
+    }
+
+    @Test
+    public void writeToChannelEndsStatefulEncodings() throws Exception {
+        List<String> values = CollectionOps.of("a", "\u65e5\u672c", "b", "\u8a9e");
+        Charset jis = Charset.forName("ISO-2022-JP");
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            CollectionOps.writeTo(Channels.newChannel(out), jis, values, "", ",", "");
+            assertThat(out.toByteArray(), equalTo(CollectionOps.mkString(values, "", ",", "").getBytes("ISO-2022-JP")));
+        }
+    }
+
+    @Test(expected = CharacterCodingException.class)
+    public void writeToChannelReportsDanglingSurrogate() throws Exception {
+        CollectionOps.writeTo(Channels.newChannel(new ByteArrayOutputStream()), Charset.forName("UTF-8"), CollectionOps.of("a", "\ud800"), "", ",", "");
+    }
+
     @Test
     public void splitAndJoin(){
         Iterable<String> numbers = CollectionOps.split("1,2,3,4,5,6,7", ",");
@@ -120,6 +187,359 @@ public class CollectionOpsTest {
         }), is(expectedNumbers));
     }
 
+    @Test
+    public void parallelOpsKeepOrder() throws Exception {
+        List<Integer> numbers = range(10000);
+        Parallelism parallelism = Parallelism.defaults().withThreshold(100);
+
+        assertThat(CollectionOps.parMap(numbers, Functions.<Integer>asString(), parallelism),
+                is(CollectionOps.map(numbers, Functions.<Integer>asString())));
+        assertThat(CollectionOps.parFilter(numbers, even(), parallelism), is(CollectionOps.filter(numbers, even())));
+        assertThat(CollectionOps.parFlatMap(numbers, someIfEven(), parallelism), is(CollectionOps.flatMap(numbers, someIfEven())));
+        assertThat(CollectionOps.parMap(new LinkedList<Integer>(numbers), Functions.<Integer>asString(), parallelism),
+                is(CollectionOps.map(numbers, Functions.<Integer>asString())));
+    }
+
+    @Test
+    public void nestedParallelOpsRunSequentiallyInEveryChunk() throws Exception {
+        List<Integer> numbers = range(10000);
+        final Parallelism parallelism = Parallelism.defaults().withThreshold(100);
+        List<Boolean> nested = CollectionOps.parMap(numbers, new Function<Integer, Boolean>() {
+            @Override
+            public Boolean apply(Integer input) {
+                return parallelism.inTask();
+            }
+        }, parallelism);
+
+        assertThat(CollectionOps.setOf(nested), is(Collections.singleton(true)));
+        assertThat(parallelism.inTask(), is(false));
+    }
+
+    @Test
+    public void parReduce() throws Exception {
+        List<Integer> numbers = range(10000);
+        Parallelism parallelism = Parallelism.defaults().withThreshold(100);
+        AssociativeUnion<Integer> sum = new AssociativeUnion<Integer>() {
+            @Override
+            public Integer unite(Integer a, Integer b) {
+                return a + b;
+            }
+        };
+
+        assertThat(CollectionOps.parReduce(numbers, sum, 10, parallelism), is(CollectionOps.reduce(numbers, sum, 10)));
+        assertThat(CollectionOps.parReduce(numbers, sum(), 10, parallelism), is(CollectionOps.reduce(numbers, sum(), 10)));
+        assertThat(CollectionOps.parReduce(CollectionOps.<Integer>of(), sum, 10, parallelism), is(10));
+    }
+
+    @Test
+    public void parGroupBy() throws Exception {
+        List<Integer> numbers = range(10000);
+        Function<Integer, Integer> mod7 = new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+                return input % 7;
+            }
+        };
+        Map<Integer, Collection<Integer>> parallel = CollectionOps.parGroupBy(numbers, mod7, Parallelism.defaults().withThreshold(100));
+
+        assertThat(new ArrayList<Integer>(parallel.keySet()), is(CollectionOps.of(0, 1, 2, 3, 4, 5, 6)));
+        assertThat(parallel, is(CollectionOps.groupBy(numbers, mod7)));
+    }
+
+    @Test
+    public void groupByWithFold() throws Exception {
+        List<String> words = CollectionOps.of("apple", "avocado", "banana", "blueberry", "cherry");
+        Map<Character, String> initials = CollectionOps.groupBy(words, firstLetter(), "", new Fold<String, String>() {
+            @Override
+            public String apply(String acc, String input) {
+                return acc + input.charAt(1);
+            }
+        });
+
+        assertThat(new ArrayList<Character>(initials.keySet()), is(CollectionOps.of('a', 'b', 'c')));
+        assertThat(initials.get('a'), is("pv"));
+        assertThat(initials.get('b'), is("al"));
+    }
+
+    @Test
+    public void aggregationsByKey() throws Exception {
+        List<String> words = CollectionOps.of("apple", "avocado", "banana", "blueberry", "cherry");
+
+        assertThat(CollectionOps.sumBy(words, firstLetter(), new Function<String, Long>() {
+            @Override
+            public Long apply(String input) {
+                return (long) input.length();
+            }
+        }), is(MapOps.newHashMap('a', 12L, 'b', 15L, 'c', 6L)));
+        assertThat(CollectionOps.minBy(words, firstLetter(), Collections.reverseOrder()),
+                is(MapOps.newHashMap('a', "avocado", 'b', "blueberry", 'c', "cherry")));
+        assertThat(CollectionOps.maxBy(words, firstLetter(), Collections.reverseOrder()),
+                is(MapOps.newHashMap('a', "apple", 'b', "banana", 'c', "cherry")));
+        assertThat(CollectionOps.reduceBy(words, firstLetter(), Functions.<String>identity(), new Union<String>() {
+            @Override
+            public String unite(String a, String b) {
+                return a + "+" + b;
+            }
+        }), is(MapOps.newHashMap('a', "apple+avocado", 'b', "banana+blueberry", 'c', "cherry")));
+    }
+
+    @Test
+    public void sortByComputesEachKeyOnce() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        List<String> words = CollectionOps.of("ccc", "a", "bb", "dd", "e");
+        List<String> sorted = CollectionOps.sortBy(words, new Function<String, Integer>() {
+            @Override
+            public Integer apply(String input) {
+                calls.incrementAndGet();
+                return input.length();
+            }
+        });
+
+        assertThat(sorted, is(CollectionOps.of("a", "e", "bb", "dd", "ccc")));
+        assertThat(calls.get(), is(words.size()));
+    }
+
+    @Test
+    public void parSortByIsStable() throws Exception {
+        Random random = new Random(3);
+        List<Integer> numbers = CollectionOps.newArrayList();
+        for (int i = 0; i < 10000; i++) {
+            numbers.add(random.nextInt(1000));
+        }
+        Function<Integer, Integer> mod10 = new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+                return input % 10;
+            }
+        };
+
+        assertThat(CollectionOps.parSortBy(numbers, mod10, Parallelism.defaults().withThreshold(100)), is(CollectionOps.sortBy(numbers, mod10)));
+        assertThat(CollectionOps.parSortBy(CollectionOps.<Integer>of(), mod10), is(CollectionOps.<Integer>of()));
+    }
+
+    @Test
+    public void topAndBottomK() throws Exception {
+        List<String> words = CollectionOps.of("ccc", "a", "bb", "dddd", "e", "ff");
+        Function<String, Integer> length = new Function<String, Integer>() {
+            @Override
+            public Integer apply(String input) {
+                return input.length();
+            }
+        };
+
+        assertThat(CollectionOps.topK(words, 3, length), is(CollectionOps.of("dddd", "ccc", "bb")));
+        assertThat(CollectionOps.bottomK(words, 3, length), is(CollectionOps.of("a", "e", "bb")));
+        assertThat(CollectionOps.topK(words, 10, length), is(CollectionOps.of("dddd", "ccc", "bb", "ff", "a", "e")));
+        assertThat(CollectionOps.bottomK(words, 0, length).isEmpty(), is(true));
+    }
+
+    private Function<String, Character> firstLetter() {
+        return new Function<String, Character>() {
+            @Override
+            public Character apply(String input) {
+                return input.charAt(0);
+            }
+        };
+    }
+
+    private List<Integer> range(int size) {
+        List<Integer> list = CollectionOps.newArrayList();
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    private Predicate<Integer> even() {
+        return new Predicate<Integer>() {
+            @Override
+            public boolean apply(Integer input) {
+                return input % 2 == 0;
+            }
+        };
+    }
+
+    @Test
+    public void lazyOperationsPullOnlyWhatIsNeeded() {
+        final AtomicInteger pulled = new AtomicInteger();
+        Iterable<Integer> naturals = CollectionOps.iterable(new Iterator<Integer>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                pulled.incrementAndGet();
+                return next++;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        });
+        Iterable<Integer> evens = CollectionOps.lazyFilter(naturals, new Predicate<Integer>() {
+            @Override
+            public boolean apply(Integer input) {
+                return input % 2 == 0;
+            }
+        });
+        Iterable<Integer> result = CollectionOps.take(CollectionOps.lazyMap(evens, new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+                return input * 10;
+            }
+        }), 3);
+        assertThat(pulled.get(), is(0));
+        assertThat(CollectionOps.newArrayList(result), equalTo(CollectionOps.of(0, 20, 40)));
+        assertThat(pulled.get(), is(5));
+    }
+
+    @Test
+    public void takeDropAndWhile() {
+        List<Integer> numbers = CollectionOps.of(1, 2, 3, 4, 5, 1);
+        assertThat(CollectionOps.newArrayList(CollectionOps.take(numbers, 2)), equalTo(CollectionOps.of(1, 2)));
+        assertThat(CollectionOps.newArrayList(CollectionOps.take(numbers, 10)), equalTo(numbers));
+        assertThat(CollectionOps.newArrayList(CollectionOps.drop(numbers, 4)), equalTo(CollectionOps.of(5, 1)));
+        assertThat(CollectionOps.isEmpty(CollectionOps.drop(numbers, 10)), is(true));
+        Predicate<Integer> small = new Predicate<Integer>() {
+            @Override
+            public boolean apply(Integer input) {
+                return input < 3;
+            }
+        };
+        assertThat(CollectionOps.newArrayList(CollectionOps.takeWhile(numbers, small)), equalTo(CollectionOps.of(1, 2)));
+        assertThat(CollectionOps.newArrayList(CollectionOps.dropWhile(numbers, small)), equalTo(CollectionOps.of(3, 4, 5, 1)));
+    }
+
+    @Test
+    public void lazyFlatMapAndConcat() {
+        List<Integer> numbers = CollectionOps.of(1, 2, 3, 4);
+        Iterable<Integer> flat = CollectionOps.lazyFlatMap(numbers, someIfEven());
+        assertThat(CollectionOps.newArrayList(flat), equalTo(CollectionOps.flatMap(numbers, someIfEven())));
+        assertThat(CollectionOps.newArrayList(flat), equalTo(CollectionOps.of(2, 4)));
+        assertThat(CollectionOps.newArrayList(CollectionOps.concat(flat, numbers)), equalTo(CollectionOps.of(2, 4, 1, 2, 3, 4)));
+        Iterable<Integer> empty = Collections.emptyList();
+        assertThat(CollectionOps.isEmpty(CollectionOps.concat(empty, empty)), is(true));
+    }
+
+    @Test
+    public void zipAndZipWithIndex() {
+        List<Pair<String, Integer>> zipped = CollectionOps.newArrayList(CollectionOps.zip(CollectionOps.of("a", "b", "c"), CollectionOps.of(1, 2)));
+        assertThat(zipped.size(), is(2));
+        assertThat(zipped.get(0), equalTo(Pair.of("a", 1)));
+        assertThat(zipped.get(1), equalTo(Pair.of("b", 2)));
+        List<Pair<String, Long>> indexed = CollectionOps.newArrayList(CollectionOps.zipWithIndex(CollectionOps.of("a", "b")));
+        assertThat(indexed.size(), is(2));
+        assertThat(indexed.get(0), equalTo(Pair.of("a", 0L)));
+        assertThat(indexed.get(1), equalTo(Pair.of("b", 1L)));
+    }
+
+    @Test
+    public void groupedAndSliding() {
+        List<Integer> numbers = CollectionOps.of(1, 2, 3, 4, 5);
+        assertThat(CollectionOps.newArrayList(CollectionOps.grouped(numbers, 2)), equalTo(lists(CollectionOps.of(1, 2), CollectionOps.of(3, 4), CollectionOps.of(5))));
+        assertThat(CollectionOps.isEmpty(CollectionOps.grouped(Collections.<Integer>emptyList(), 2)), is(true));
+        assertThat(CollectionOps.newArrayList(CollectionOps.sliding(numbers, 3, 1)), equalTo(lists(CollectionOps.of(1, 2, 3), CollectionOps.of(2, 3, 4), CollectionOps.of(3, 4, 5))));
+        assertThat(CollectionOps.newArrayList(CollectionOps.sliding(numbers, 3, 2)), equalTo(lists(CollectionOps.of(1, 2, 3), CollectionOps.of(3, 4, 5))));
+        assertThat(CollectionOps.newArrayList(CollectionOps.sliding(numbers, 2, 3)), equalTo(lists(CollectionOps.of(1, 2), CollectionOps.of(4, 5))));
+        assertThat(CollectionOps.newArrayList(CollectionOps.sliding(CollectionOps.of(1, 2, 3, 4), 3, 2)), equalTo(lists(CollectionOps.of(1, 2, 3), CollectionOps.of(3, 4))));
+        assertThat(CollectionOps.newArrayList(CollectionOps.sliding(CollectionOps.of(1, 2), 3, 1)), equalTo(lists(CollectionOps.of(1, 2))));
+    }
+
+    @Test
+    public void foreachBatchSequentialAndOverlapped() {
+        List<Integer> numbers = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            numbers.add(i);
+        }
+        final List<Integer> seen = new ArrayList<Integer>();
+        final List<Integer> sizes = new ArrayList<Integer>();
+        Effect<List<Integer>> collect = new Effect<List<Integer>>() {
+            @Override
+            public void exec(List<Integer> batch) {
+                sizes.add(batch.size());
+                seen.addAll(batch);
+            }
+        };
+        CollectionOps.foreachBatch(numbers, 300, collect);
+        assertThat(sizes, equalTo(CollectionOps.of(300, 300, 300, 100)));
+        assertThat(seen, equalTo(numbers));
+        seen.clear();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CollectionOps.foreachBatch(numbers, 7, collect, executor, 2);
+            assertThat(seen, equalTo(numbers));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void overlappedForeachBatchRethrowsFailures() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            try {
+                CollectionOps.foreachBatch(CollectionOps.of(1, 2, 3, 4), 1, new Effect<List<Integer>>() {
+                    @Override
+                    public void exec(List<Integer> batch) {
+                        throw new IllegalStateException("effect");
+                    }
+                }, executor, 1);
+                fail("Expected the effect failure");
+            } catch (IllegalStateException e) {
+                assertThat(e.getMessage(), is("effect"));
+            }
+            Iterable<Integer> failing = CollectionOps.lazyMap(CollectionOps.of(1, 2, 0), new Function<Integer, Integer>() {
+                @Override
+                public Integer apply(Integer input) {
+                    return 10 / input;
+                }
+            });
+            final AtomicInteger batches = new AtomicInteger();
+            try {
+                CollectionOps.foreachBatch(failing, 1, new Effect<List<Integer>>() {
+                    @Override
+                    public void exec(List<Integer> batch) {
+                        batches.incrementAndGet();
+                    }
+                }, executor, 4);
+                fail("Expected the source failure");
+            } catch (ArithmeticException e) {
+                assertThat(batches.get(), is(2));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000, expected = IllegalArgumentException.class)
+    public void overlappedForeachBatchRejectsSameThreadExecutor() {
+        Executor direct = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        CollectionOps.foreachBatch(range(100), 1, new Effect<List<Integer>>() {
+            @Override
+            public void exec(List<Integer> batch) {
+            }
+        }, direct, 2);
+    }
+
+    private Function<Integer, Iterable<Integer>> someIfEven() {
+        return new Function<Integer, Iterable<Integer>>() {
+            @Override
+            public Iterable<Integer> apply(Integer input) {
+                return input % 2 == 0 ? Optional.some(input) : Optional.<Integer>none();
+            }
+        };
+    }
+
     private Union<Integer> sum() {
         return new Union<Integer>() {
             @Override
@@ -128,4 +548,22 @@ public class CollectionOpsTest {
             }
         };
     }
+
+    private List<List<Integer>> lists(List<Integer> a) {
+        List<List<Integer>> lists = new ArrayList<List<Integer>>();
+        lists.add(a);
+        return lists;
+    }
+
+    private List<List<Integer>> lists(List<Integer> a, List<Integer> b) {
+        List<List<Integer>> lists = lists(a);
+        lists.add(b);
+        return lists;
+    }
+
+    private List<List<Integer>> lists(List<Integer> a, List<Integer> b, List<Integer> c) {
+        List<List<Integer>> lists = lists(a, b);
+        lists.add(c);
+        return lists;
+    }
 }
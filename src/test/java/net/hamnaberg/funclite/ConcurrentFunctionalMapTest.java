@@ -0,0 +1,148 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentFunctionalMapTest {
+    private static final Union<Long> SUM = new Union<Long>() {
+        @Override
+        public Long unite(Long a, Long b) {
+            return a + b;
+        }
+    };
+
+    @Test
+    public void getOrElseUpdateComputesOncePerKey() throws Exception {
+        final ConcurrentFunctionalMap<String, Integer> map = ConcurrentFunctionalMap.create();
+        final AtomicInteger calls = new AtomicInteger();
+        final Function<String, Integer> length = new Function<String, Integer>() {
+            @Override
+            public Integer apply(String input) {
+                calls.incrementAndGet();
+                return input.length();
+            }
+        };
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = runConcurrently(8, new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                start.await();
+                return map.getOrElseUpdate("tenant", length);
+            }
+        }, start);
+        for (Future<Integer> result : results) {
+            assertEquals(Integer.valueOf(6), result.get());
+        }
+        assertEquals(1, calls.get());
+        assertEquals(Integer.valueOf(6), map.getOrElseUpdate("tenant", length));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void updateWithInsertsUpdatesAndRemoves() {
+        ConcurrentFunctionalMap<String, Integer> map = ConcurrentFunctionalMap.create();
+        Function<Optional<Integer>, Optional<Integer>> countDown = new Function<Optional<Integer>, Optional<Integer>>() {
+            @Override
+            public Optional<Integer> apply(Optional<Integer> current) {
+                if (current.isNone()) {
+                    return Optional.some(2);
+                }
+                return current.get() == 1 ? Optional.<Integer>none() : Optional.some(current.get() - 1);
+            }
+        };
+        assertEquals(Optional.some(2), map.updateWith("a", countDown));
+        assertEquals(Optional.some(1), map.updateWith("a", countDown));
+        assertEquals(Optional.<Integer>none(), map.updateWith("a", countDown));
+        assertFalse(map.containsKey("a"));
+        assertEquals(Optional.<Integer>none(), map.getOptional("a"));
+        assertEquals(Integer.valueOf(7), map.getOrElse("a", 7));
+    }
+
+    @Test
+    public void mergeWithCountsUnderContention() throws Exception {
+        final ConcurrentFunctionalMap<String, Long> counters = ConcurrentFunctionalMap.create();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = runConcurrently(8, new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                start.await();
+                for (int i = 0; i < 10000; i++) {
+                    counters.mergeWith("tenant-" + (i % 4), 1L, SUM);
+                }
+                return 0;
+            }
+        }, start);
+        for (Future<Integer> result : results) {
+            result.get();
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals(Long.valueOf(8 * 2500), counters.get("tenant-" + i));
+        }
+    }
+
+    @Test
+    public void viewFollowsUpdatesAndSnapshotDoesNot() {
+        ConcurrentFunctionalMap<String, Long> map = ConcurrentFunctionalMap.create();
+        map.put("a", 1L);
+        FunctionalMap<String, Long> view = map.view();
+        FunctionalMap<String, Long> snapshot = map.snapshot();
+        map.mergeWith("a", 2L, SUM);
+        map.put("b", 5L);
+        assertEquals(Long.valueOf(3), view.get("a"));
+        assertEquals(2, view.size());
+        assertEquals(Long.valueOf(1), snapshot.get("a"));
+        assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    public void functionalOperations() {
+        ConcurrentFunctionalMap<String, Long> map = ConcurrentFunctionalMap.copyOf(MapOps.newHashMap("a", 1L, "bb", 2L));
+        assertEquals(MapOps.newHashMap("a", "1", "bb", "2"), map.mapValues(Functions.<Long>asString()));
+        assertEquals(MapOps.newHashMap("bb", 2L), map.filterKeys(new Predicate<String>() {
+            @Override
+            public boolean apply(String input) {
+                return input.length() > 1;
+            }
+        }));
+    }
+
+    private static <A> List<Future<A>> runConcurrently(int threads, Callable<A> task, CountDownLatch start) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<A>> results = new ArrayList<Future<A>>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(task));
+            }
+            start.countDown();
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
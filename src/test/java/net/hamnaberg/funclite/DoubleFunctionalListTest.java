@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DoubleFunctionalListTest {
+    @Test
+    public void sumMinMax() {
+        DoubleFunctionalList doubles = DoubleFunctionalList.of(1.5, -2.0, 4.25);
+        assertEquals(3.75, doubles.sum(), 0.0);
+        assertEquals(-2.0, doubles.min(), 0.0);
+        assertEquals(4.25, doubles.max(), 0.0);
+    }
+
+    @Test
+    public void equalityFollowsDoubleEquals() {
+        assertEquals(DoubleFunctionalList.of(Double.NaN, 1.0), DoubleFunctionalList.of(Double.NaN, 1.0));
+        assertEquals(DoubleFunctionalList.of(Double.NaN, 1.0).hashCode(), DoubleFunctionalList.of(Double.NaN, 1.0).hashCode());
+        assertFalse(DoubleFunctionalList.of(0.0).equals(DoubleFunctionalList.of(-0.0)));
+    }
+
+    @Test
+    public void filterKeepsOrder() {
+        DoubleFunctionalList filtered = DoubleFunctionalList.of(3.0, -1.0, 2.0, -5.0).filter(new DoublePredicate() {
+            @Override
+            public boolean apply(double input) {
+                return input > 0;
+            }
+        });
+        assertEquals(DoubleFunctionalList.of(3.0, 2.0), filtered);
+        assertEquals(2, filtered.size());
+    }
+}
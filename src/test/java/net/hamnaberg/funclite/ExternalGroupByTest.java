@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ExternalGroupByTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Function<Long, Long> MOD_1000 = new Function<Long, Long>() {
+        @Override
+        public Long apply(Long input) {
+            return input % 1000;
+        }
+    };
+
+    @Test
+    public void countByMatchesInMemoryCountBy() throws Exception {
+        List<Long> values = randomValues(50000);
+        File directory = folder.newFolder("spill");
+        Spilling spilling = Spilling.defaults().withMaxInMemory(50).withPartitions(4).withDirectory(directory);
+        Map<Long, Integer> external = CollectionOps.countBy(values, MOD_1000, RecordCodecs.longs(), spilling);
+        Map<Long, Integer> expected = CollectionOps.countBy(values, MOD_1000);
+        assertEquals(expected, external);
+        assertEquals(new ArrayList<Long>(expected.keySet()), new ArrayList<Long>(external.keySet()));
+        assertTrue(spilling.stats().getSpills() > 1);
+        assertTrue(spilling.stats().getSpilledRecords() > 0);
+        assertEquals(spilling.stats().getSpilledRecords() * 20, spilling.stats().getSpilledBytes());
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void unorderedResultHasTheSameEntries() throws Exception {
+        List<Long> values = randomValues(10000);
+        Spilling spilling = Spilling.defaults().withMaxInMemory(10).withFirstSeenOrder(false).withDirectory(folder.newFolder("spill"));
+        Map<Long, Long> sums = CollectionOps.groupBy(values, MOD_1000, 0L, new Fold<Long, Long>() {
+            @Override
+            public Long apply(Long acc, Long input) {
+                return acc + input;
+            }
+        }, RecordCodecs.longs(), spilling);
+        assertEquals(CollectionOps.sumBy(values, MOD_1000, Functions.<Long>identity()), sums);
+    }
+
+    @Test
+    public void defaultsHaveTheirOwnStats() throws Exception {
+        Spilling spilling = Spilling.defaults().withMaxInMemory(10).withDirectory(folder.newFolder("spill"));
+        CollectionOps.countBy(randomValues(1000), MOD_1000, RecordCodecs.longs(), spilling);
+        assertTrue(spilling.stats().getSpills() > 0);
+        assertNotSame(Spilling.defaults(), Spilling.defaults());
+        assertEquals(0, Spilling.defaults().stats().getSpilledRecords());
+    }
+
+    @Test
+    public void staysInMemoryUnderTheLimit() {
+        List<Long> values = randomValues(1000);
+        Spilling spilling = Spilling.defaults().withMaxInMemory(1000);
+        assertEquals(CollectionOps.countBy(values, MOD_1000), CollectionOps.countBy(values, MOD_1000, RecordCodecs.longs(), spilling));
+        assertEquals(0, spilling.stats().getSpills());
+    }
+
+    @Test
+    public void foreachGroupSeesEveryGroupOnceInInputOrder() throws Exception {
+        List<Long> values = randomValues(20000);
+        File directory = folder.newFolder("spill");
+        Spilling spilling = Spilling.defaults().withMaxInMemory(500).withPartitions(8).withDirectory(directory);
+        final Map<Long, List<Long>> groups = new HashMap<Long, List<Long>>();
+        CollectionOps.foreachGroup(values, MOD_1000, RecordCodecs.longs(), spilling, new Effect<Pair<Long, List<Long>>>() {
+            @Override
+            public void exec(Pair<Long, List<Long>> group) {
+                assertNull(groups.put(group.first, group.second));
+            }
+        });
+        Map<Long, Collection<Long>> expected = CollectionOps.groupBy(values, MOD_1000);
+        assertEquals(expected.size(), groups.size());
+        for (Map.Entry<Long, Collection<Long>> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), groups.get(entry.getKey()));
+        }
+        assertTrue(spilling.stats().getSpills() > 1);
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void singleHugeKeyStopsSplitting() throws Exception {
+        List<Long> values = new ArrayList<Long>();
+        for (long i = 0; i < 1000; i++) {
+            values.add(i * 1000);
+        }
+        Spilling spilling = Spilling.defaults().withMaxInMemory(10).withPartitions(2).withDirectory(folder.newFolder("spill"));
+        final List<Pair<Long, List<Long>>> groups = new ArrayList<Pair<Long, List<Long>>>();
+        CollectionOps.foreachGroup(values, MOD_1000, RecordCodecs.longs(), spilling, new Effect<Pair<Long, List<Long>>>() {
+            @Override
+            public void exec(Pair<Long, List<Long>> group) {
+                groups.add(group);
+            }
+        });
+        assertEquals(1, groups.size());
+        assertEquals(values, groups.get(0).second);
+        assertEquals(ExternalGroupBy.MAX_DEPTH, spilling.stats().getSpills());
+    }
+
+    private static List<Long> randomValues(int count) {
+        Random random = new Random(7);
+        List<Long> values = new ArrayList<Long>(count);
+        for (int i = 0; i < count; i++) {
+            values.add((long) random.nextInt(1 << 20));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ExternalSortTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Function<Long, Long> MOD_1000 = new Function<Long, Long>() {
+        @Override
+        public Long apply(Long input) {
+            return input % 1000;
+        }
+    };
+
+    @Test
+    public void matchesInMemorySortAndIsStable() throws Exception {
+        List<Long> values = randomValues(20000);
+        File directory = folder.newFolder("spill");
+        Spilling spilling = Spilling.defaults().withMaxInMemory(1000).withDirectory(directory);
+        ExternalSorted<Long> sorted = CollectionOps.sortBy(values, MOD_1000, RecordCodecs.longs(), spilling);
+        assertFalse(sorted.isInMemory());
+        assertEquals(CollectionOps.sortBy(values, MOD_1000), CollectionOps.newArrayList(sorted));
+        assertEquals(CollectionOps.sortBy(values, MOD_1000), CollectionOps.newArrayList(sorted));
+        assertEquals(20, spilling.stats().getSpills());
+        assertEquals(20000 * 12, spilling.stats().getSpilledBytes());
+        sorted.close();
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void mergesInSeveralPassesWhenThereAreManyRuns() throws Exception {
+        List<Long> values = randomValues(ExternalSort.MAX_FAN_IN * 30 + 7);
+        File directory = folder.newFolder("spill");
+        Spilling spilling = Spilling.defaults().withMaxInMemory(10).withDirectory(directory);
+        ExternalSorted<Long> sorted = CollectionOps.sortBy(values, MOD_1000, RecordCodecs.longs(), spilling);
+        assertEquals(CollectionOps.sortBy(values, MOD_1000), CollectionOps.newArrayList(sorted));
+        assertTrue(directory.listFiles().length <= ExternalSort.MAX_FAN_IN);
+        sorted.close();
+        assertEquals(0, directory.listFiles().length);
+
+        File failing = folder.newFolder("failing");
+        try {
+            CollectionOps.sortBy(values, MOD_1000, failAfter(values.size() + values.size() / 2), spilling.withDirectory(failing));
+            fail("codec should have failed in the merge pass");
+        }
+        catch (IllegalStateException e) {
+            assertEquals(0, failing.listFiles().length);
+        }
+    }
+
+    @Test
+    public void parallelRunsGiveTheSameResult() throws Exception {
+        List<Long> values = randomValues(50000);
+        File directory = folder.newFolder("spill");
+        Spilling spilling = Spilling.defaults().withMaxInMemory(20000).withDirectory(directory);
+        Parallelism parallelism = Parallelism.defaults().withThreshold(1000);
+        ExternalSorted<Long> sorted = CollectionOps.sortBy(values, MOD_1000, RecordCodecs.longs(), spilling, parallelism);
+        assertEquals(CollectionOps.sortBy(values, MOD_1000), CollectionOps.newArrayList(sorted));
+        sorted.close();
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void staysInMemoryUnderTheLimit() {
+        List<Long> values = randomValues(1000);
+        Spilling spilling = Spilling.defaults().withMaxInMemory(1000);
+        ExternalSorted<Long> sorted = CollectionOps.sortBy(values, MOD_1000, RecordCodecs.longs(), spilling);
+        assertTrue(sorted.isInMemory());
+        assertEquals(CollectionOps.sortBy(values, MOD_1000), CollectionOps.newArrayList(sorted));
+        assertEquals(0, spilling.stats().getSpills());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotIterateAfterClose() throws Exception {
+        Spilling spilling = Spilling.defaults().withMaxInMemory(10).withDirectory(folder.newFolder("spill"));
+        ExternalSorted<Long> sorted = CollectionOps.sortBy(randomValues(100), MOD_1000, RecordCodecs.longs(), spilling);
+        sorted.close();
+        sorted.iterator();
+    }
+
+    /**
+     * Writes longs, failing on the given encode call.
+     */
+    private static RecordCodec<Long> failAfter(final int encodes) {
+        return new RecordCodec<Long>() {
+            private int calls;
+
+            @Override
+            public int fixedLength() {
+                return 8;
+            }
+
+            @Override
+            public void encode(Long value, DataOutput out) throws IOException {
+                if (++calls == encodes) {
+                    throw new IOException("Disk full");
+                }
+                out.writeLong(value);
+            }
+
+            @Override
+            public Long decode(ByteBuffer record) {
+                return record.getLong(record.position());
+            }
+        };
+    }
+
+    private static List<Long> randomValues(int n) {
+        Random random = new Random(42);
+        List<Long> values = new ArrayList<Long>(n);
+        for (int i = 0; i < n; i++) {
+            values.add((long) random.nextInt(1000000));
+        }
+        return values;
+    }
+}
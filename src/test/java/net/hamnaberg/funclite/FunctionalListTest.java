@@ -19,6 +19,9 @@ package net.hamnaberg.funclite;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static net.hamnaberg.funclite.Optional.*;
@@ -81,4 +84,114 @@ public class FunctionalListTest {
         }));
 
     }
+
+    @Test
+    public void parMapAndReduce() {
+        FunctionalList<Integer> ints = FunctionalList.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        ParallelList<Integer> par = ints.par(Parallelism.defaults().withThreshold(2));
+        assertEquals(ints.map(Functions.<Integer>asString()), par.map(Functions.<Integer>asString()));
+        assertEquals(Integer.valueOf(55), par.reduce(new AssociativeUnion<Integer>() {
+            @Override
+            public Integer unite(Integer a, Integer b) {
+                return a + b;
+            }
+        }, 0));
+        assertEquals(ints, par.seq());
+    }
+
+    @Test
+    public void persistentUpdates() {
+        FunctionalList<Integer> ints = FunctionalList.of(1, 2, 3);
+        FunctionalList<Integer> appended = ints.append(4).prepend(0);
+        assertEquals(FunctionalList.of(0, 1, 2, 3, 4), appended);
+        assertEquals(FunctionalList.of(1, 2, 3), ints);
+        assertEquals(FunctionalList.of(0, 1, 42, 3, 4), appended.updated(2, 42));
+        assertEquals(FunctionalList.of(1, 2, 3, 1, 2, 3), ints.concat(ints));
+        assertEquals(FunctionalList.of(2, 3), appended.slice(2, 4));
+    }
+
+    @Test
+    public void recursiveTailOnPersistentList() {
+        FunctionalList<Integer> list = FunctionalList.persistentCopyOf(CollectionOps.of(1, 2, 3, 4, 5));
+        int sum = 0;
+        while (!list.isEmpty()) {
+            sum += list.head();
+            list = list.tail();
+        }
+        assertEquals(15, sum);
+    }
+    @Test
+    public void mapAsyncKeepsOrderAndLimitsConcurrency() {
+        List<Integer> numbers = new ArrayList<Integer>();
+        for (int i = 0; i < 40; i++) {
+            numbers.add(i);
+        }
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            FunctionalList<Integer> doubled = FunctionalList.create(numbers).mapAsync(new Function<Integer, Integer>() {
+                @Override
+                public Integer apply(Integer input) {
+                    int now = running.incrementAndGet();
+                    int max;
+                    while (now > (max = maxRunning.get()) && !maxRunning.compareAndSet(max, now)) {
+                        // retry
+                    }
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                    return input * 2;
+                }
+            }, executor, 4);
+            assertEquals(40, doubled.size());
+            for (int i = 0; i < 40; i++) {
+                assertEquals(Integer.valueOf(i * 2), doubled.get(i));
+            }
+            assertTrue(String.valueOf(maxRunning.get()), maxRunning.get() <= 4 && maxRunning.get() > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void mapAsyncFailsFastAndCancelsTheRest() {
+        long start = System.nanoTime();
+        try {
+            FunctionalList.of(0, 1, 2, 3).mapAsync(new Function<Integer, Integer>() {
+                @Override
+                public Integer apply(Integer input) {
+                    if (input == 2) {
+                        throw new IllegalArgumentException("failed " + input);
+                    }
+                    try {
+                        Thread.sleep(10000);
+                    } catch (InterruptedException e) {
+                        // cancelled after the failure
+                    }
+                    return input;
+                }
+            }, 4);
+            fail("Expected the failure to be rethrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("failed 2", e.getMessage());
+        }
+        assertTrue((System.nanoTime() - start) < 5000000000L);
+    }
+
+    @Test
+    public void foreachAsyncRunsEveryEffect() {
+        final AtomicInteger sum = new AtomicInteger();
+        FunctionalList.of(1, 2, 3, 4, 5).foreachAsync(new Effect<Integer>() {
+            @Override
+            public void exec(Integer input) {
+                sum.addAndGet(input);
+            }
+        }, 2);
+        assertEquals(15, sum.get());
+    }
 }
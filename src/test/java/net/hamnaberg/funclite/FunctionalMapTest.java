@@ -73,4 +73,16 @@ public class FunctionalMapTest {
 
         assertEquals(Integer.valueOf(3), mappedValues.get("three"));
     }
+
+    @Test
+    public void persistentUpdatesKeepDefaultValue() {
+        FunctionalMap<String, Integer> map = FunctionalMap.create(MapOps.newHashMap("1", 1, "2", 2)).withDefaultValue(0);
+        FunctionalMap<String, Integer> updated = map.updated("3", 3).removed("1");
+
+        assertEquals(MapOps.newHashMap("2", 2, "3", 3), updated);
+        assertEquals(Integer.valueOf(0), updated.get("1"));
+        assertEquals(Optional.some(3), updated.getOptional("3"));
+        assertEquals(Integer.valueOf(1), map.get("1"));
+        assertEquals(Integer.valueOf(7), FunctionalMap.<String, Integer>persistentEmpty().getOrElse("x", 7));
+    }
 }
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class FunctionalStreamTest {
+    private static final Function<Integer, Integer> DOUBLE = new Function<Integer, Integer>() {
+        @Override
+        public Integer apply(Integer input) {
+            return input * 2;
+        }
+    };
+
+    private static final Predicate<Integer> EVEN = new Predicate<Integer>() {
+        @Override
+        public boolean apply(Integer input) {
+            return input % 2 == 0;
+        }
+    };
+
+    @Test
+    public void iterableRoundTrip() {
+        FunctionalStream<Integer> stream = FunctionalStream.fromIterable(range(20)).filter(EVEN).map(DOUBLE);
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 0; i < 20; i += 2) {
+            expected.add(i * 2);
+        }
+        assertEquals(expected, CollectionOps.newArrayList(stream.toIterable(3)));
+        assertEquals(expected, CollectionOps.newArrayList(stream.toIterable(100)));
+    }
+
+    @Test
+    public void emitsNoMoreThanRequested() {
+        Recorder<Integer> recorder = new Recorder<Integer>();
+        FunctionalStream.fromIterable(range(10)).map(DOUBLE).subscribe(recorder);
+        assertTrue(recorder.values.isEmpty());
+        recorder.subscription.request(3);
+        assertEquals(Arrays.asList(0, 2, 4), recorder.values);
+        recorder.subscription.request(100);
+        assertEquals(10, recorder.values.size());
+        assertTrue(recorder.completed);
+    }
+
+    @Test
+    public void scanWithUnion() {
+        FunctionalStream<Integer> sums = FunctionalStream.fromIterable(Arrays.asList(1, 2, 3, 4)).scan(0, new Union<Integer>() {
+            @Override
+            public Integer unite(Integer a, Integer b) {
+                return a + b;
+            }
+        });
+        assertEquals(Arrays.asList(1, 3, 6, 10), CollectionOps.newArrayList(sums.toIterable(2)));
+    }
+
+    @Test
+    public void sourceDropsNewestWhenFull() {
+        FunctionalStream.Source<Integer> source = FunctionalStream.source(3, FunctionalStream.Overflow.DROP);
+        for (int i = 0; i < 10000; i++) {
+            source.emit(i);
+            assertTrue(source.buffered() <= 3);
+        }
+        source.complete();
+        Recorder<Integer> recorder = new Recorder<Integer>();
+        source.subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertEquals(Arrays.asList(0, 1, 2), recorder.values);
+        assertTrue(recorder.completed);
+    }
+
+    @Test
+    public void bufferKeepsLatestWhenFull() {
+        Recorder<Integer> recorder = new Recorder<Integer>();
+        FunctionalStream.fromIterable(range(10)).buffer(3, FunctionalStream.Overflow.LATEST).subscribe(recorder);
+        recorder.subscription.request(2);
+        assertEquals(Arrays.asList(7, 8), recorder.values);
+        assertFalse(recorder.completed);
+        recorder.subscription.request(2);
+        assertEquals(Arrays.asList(7, 8, 9), recorder.values);
+        assertTrue(recorder.completed);
+    }
+
+    @Test
+    public void overflowErrorFailsTheStream() {
+        FunctionalStream.Source<Integer> source = FunctionalStream.source(2, FunctionalStream.Overflow.ERROR);
+        Recorder<Integer> recorder = new Recorder<Integer>();
+        source.subscribe(recorder);
+        assertTrue(source.emit(1));
+        assertTrue(source.emit(2));
+        assertFalse(source.emit(3));
+        assertTrue(recorder.error instanceof IllegalStateException);
+        assertFalse(source.emit(4));
+        assertTrue(recorder.values.isEmpty());
+    }
+
+    @Test
+    public void failingEffectCancelsTheStream() {
+        final List<Integer> seen = new ArrayList<Integer>();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        FunctionalStream.Source<Integer> source = FunctionalStream.source(16, FunctionalStream.Overflow.DROP);
+        source.foreach(new Effect<Integer>() {
+            @Override
+            public void exec(Integer input) {
+                if (input == 3) {
+                    throw new IllegalArgumentException("three");
+                }
+                seen.add(input);
+            }
+        }, new Effect<Throwable>() {
+            @Override
+            public void exec(Throwable input) {
+                failure.set(input);
+            }
+        }, 2);
+        for (int i = 0; i < 10; i++) {
+            source.emit(i);
+        }
+        assertEquals(Arrays.asList(0, 1, 2), seen);
+        assertEquals("three", failure.get().getMessage());
+        assertEquals(0, source.buffered());
+    }
+
+    @Test
+    public void failureIsRethrownFromIterable() {
+        FunctionalStream<Integer> stream = FunctionalStream.fromIterable(Arrays.asList(1, 0)).map(new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+                return 10 / input;
+            }
+        });
+        List<Integer> seen = new ArrayList<Integer>();
+        try {
+            for (Integer value : stream.toIterable(4)) {
+                seen.add(value);
+            }
+            fail("Expected ArithmeticException");
+        } catch (ArithmeticException e) {
+            assertEquals(Arrays.asList(10), seen);
+        }
+    }
+
+    @Test
+    public void concurrentProducersLoseNothingButDrops() throws Exception {
+        final FunctionalStream.Source<Integer> source = FunctionalStream.source(64, FunctionalStream.Overflow.DROP);
+        final Set<Integer> received = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+        final AtomicInteger duplicates = new AtomicInteger();
+        source.foreach(new Effect<Integer>() {
+            @Override
+            public void exec(Integer input) {
+                if (!received.add(input)) {
+                    duplicates.incrementAndGet();
+                }
+            }
+        }, new Effect<Throwable>() {
+            @Override
+            public void exec(Throwable input) {
+            }
+        }, 16);
+        final AtomicInteger accepted = new AtomicInteger();
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            final int offset = t * 100000;
+            producers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        if (source.emit(offset + i)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertEquals(0, duplicates.get());
+        assertEquals(accepted.get(), received.size());
+    }
+
+    @Test
+    public void nonPositiveRequestFailsTheBufferedStream() {
+        FunctionalStream.Source<Integer> source = FunctionalStream.source(3, FunctionalStream.Overflow.DROP);
+        source.emit(1);
+        source.emit(2);
+        source.complete();
+        Recorder<Integer> recorder = new Recorder<Integer>();
+        source.subscribe(recorder);
+        recorder.subscription.request(0);
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertFalse(recorder.completed);
+        assertTrue(recorder.values.isEmpty());
+
+        Recorder<Integer> buffered = new Recorder<Integer>();
+        FunctionalStream.fromIterable(range(10)).buffer(3, FunctionalStream.Overflow.DROP).subscribe(buffered);
+        buffered.subscription.request(-1);
+        assertTrue(buffered.error instanceof IllegalArgumentException);
+        buffered.subscription.request(10);
+        assertTrue(buffered.values.isEmpty());
+        assertFalse(buffered.completed);
+    }
+
+    @Test
+    public void sourceAllowsOneSubscriber() {
+        FunctionalStream.Source<Integer> source = FunctionalStream.source(1, FunctionalStream.Overflow.DROP);
+        source.subscribe(new Recorder<Integer>());
+        Recorder<Integer> second = new Recorder<Integer>();
+        source.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    private static List<Integer> range(int n) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = 0; i < n; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    private static class Recorder<A> implements Subscriber<A> {
+        final List<A> values = new ArrayList<A>();
+        Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(A value) {
+            values.add(value);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
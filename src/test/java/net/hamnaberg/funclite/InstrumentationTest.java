@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class InstrumentationTest {
+    @Test
+    public void countsInvocationsAndErrors() {
+        Function<Integer, Integer> f = Instrumentation.defaults().withoutJmx().withSampleRate(1).function("test.divide", new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+                return 100 / input;
+            }
+        });
+        assertEquals(Integer.valueOf(50), f.apply(2));
+        assertEquals(Integer.valueOf(10), f.apply(10));
+        try {
+            f.apply(0);
+            fail("Expected ArithmeticException");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+        Metrics metrics = Instrumentation.defaults().withoutJmx().metrics("test.divide");
+        assertEquals(3, metrics.getInvocations());
+        assertEquals(1, metrics.getErrors());
+        assertEquals(3, metrics.getSampledCalls());
+        assertTrue(metrics.getMaxNanos() >= metrics.getP50Nanos());
+    }
+
+    @Test
+    public void predicatePassRate() {
+        Predicate<Integer> even = Predicates.instrumented("test.even", new Predicate<Integer>() {
+            @Override
+            public boolean apply(Integer input) {
+                return input % 2 == 0;
+            }
+        });
+        assertEquals(5, CollectionOps.filter(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), even).size());
+        Metrics metrics = Instrumentation.defaults().metrics("test.even");
+        assertEquals(10, metrics.getInvocations());
+        assertEquals(5, metrics.getPasses());
+        assertEquals(0.5, metrics.getPassRate(), 0.0001);
+    }
+
+    @Test
+    public void samplesOneCallInRate() {
+        Instrumentation instrumentation = Instrumentation.defaults().withoutJmx().withSampleRate(50);
+        assertEquals(64, instrumentation.getSampleRate());
+        Effect<String> effect = instrumentation.effect("test.sampled", new Effect<String>() {
+            @Override
+            public void exec(String input) {
+            }
+        });
+        for (int i = 0; i < 640; i++) {
+            effect.exec("a");
+        }
+        Metrics metrics = instrumentation.metrics("test.sampled");
+        assertEquals(640, metrics.getInvocations());
+        assertEquals(10, metrics.getSampledCalls());
+        metrics.reset();
+        assertEquals(0, metrics.getInvocations());
+        assertEquals(0, metrics.getSampledCalls());
+    }
+
+    @Test
+    public void exportsToJmx() throws Exception {
+        Union<Integer> sum = Instrumentation.defaults().union("test.sum", new Union<Integer>() {
+            @Override
+            public Integer unite(Integer a, Integer b) {
+                return a + b;
+            }
+        });
+        assertEquals(Integer.valueOf(3), sum.unite(1, 2));
+        Object invocations = ManagementFactory.getPlatformMBeanServer().getAttribute(Instrumentation.objectName("test.sum"), "Invocations");
+        assertEquals(1L, invocations);
+    }
+
+    @Test
+    public void defaultsSampleCalls() {
+        assertEquals(Instrumentation.DEFAULT_SAMPLE_RATE, Instrumentation.defaults().getSampleRate());
+        assertTrue(Instrumentation.defaults().getSampleRate() > 1);
+    }
+
+    @Test
+    public void unregisterDropsMetricsAndMBean() throws Exception {
+        Function<Integer, Integer> f = Instrumentation.defaults().function("test.dynamic", Functions.<Integer>identity());
+        f.apply(1);
+        ObjectName objectName = Instrumentation.objectName("test.dynamic");
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+
+        assertTrue(Instrumentation.unregister("test.dynamic"));
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+        assertFalse(Instrumentation.unregister("test.dynamic"));
+        assertEquals(0, Instrumentation.defaults().withoutJmx().metrics("test.dynamic").getInvocations());
+        Instrumentation.unregister("test.dynamic");
+    }
+
+    @Test
+    public void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(500500.0, histogram.mean(), 0.0001);
+        long p50 = histogram.percentile(0.5);
+        assertTrue(String.valueOf(p50), p50 >= 500000 && p50 <= 625000);
+        assertEquals(1000000, histogram.percentile(1));
+        for (long value : new long[]{0, 1, 3, 4, 7, 8, 9, 1023, 1024, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(value <= LatencyHistogram.upperBound(index));
+            assertTrue(index == 0 || value > LatencyHistogram.upperBound(index - 1));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+
+public class IntFunctionalListTest {
+    private static final IntPredicate EVEN = new IntPredicate() {
+        @Override
+        public boolean apply(int input) {
+            return input % 2 == 0;
+        }
+    };
+
+    @Test
+    public void mapFilterReduce() {
+        IntFunctionalList ints = IntFunctionalList.of(1, 2, 3, 4, 5);
+        IntFunctionalList squares = ints.map(new IntFunction() {
+            @Override
+            public int apply(int input) {
+                return input * input;
+            }
+        });
+        assertEquals(IntFunctionalList.of(1, 4, 9, 16, 25), squares);
+        assertEquals(IntFunctionalList.of(4, 16), squares.filter(EVEN));
+        assertEquals(120, ints.reduce(new IntUnion() {
+            @Override
+            public int unite(int a, int b) {
+                return a * b;
+            }
+        }, 1));
+    }
+
+    @Test
+    public void aggregates() {
+        IntFunctionalList ints = IntFunctionalList.of(Integer.MAX_VALUE, -3, 7, Integer.MAX_VALUE);
+        assertEquals(2L * Integer.MAX_VALUE + 4, ints.sum());
+        assertEquals(-3, ints.min());
+        assertEquals(Integer.MAX_VALUE, ints.max());
+        assertEquals(0, ints.count(EVEN));
+        assertFalse(ints.exists(EVEN));
+        assertTrue(IntFunctionalList.empty().forall(EVEN));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void minOfEmptyFails() {
+        IntFunctionalList.empty().min();
+    }
+
+    @Test
+    public void boxingRoundTrip() {
+        FunctionalList<Integer> boxed = IntFunctionalList.of(3, 1, 2).boxed();
+        assertEquals(FunctionalList.of(3, 1, 2), boxed);
+        assertEquals(IntFunctionalList.of(3, 1, 2), IntFunctionalList.copyOf(boxed));
+        assertEquals("[3,1,2]", IntFunctionalList.copyOf(boxed).toString());
+    }
+
+    @Test
+    public void ofCopiesInput() {
+        int[] values = {1, 2, 3};
+        IntFunctionalList ints = IntFunctionalList.of(values);
+        values[0] = 42;
+        assertEquals(1, ints.get(0));
+    }
+}
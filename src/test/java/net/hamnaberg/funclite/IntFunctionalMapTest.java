@@ -0,0 +1,66 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntFunctionalMapTest {
+    @Test
+    public void agreesWithHashMapOnHeapAndOffHeap() {
+        Random random = new Random(7);
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        IntFunctionalMap.Builder heap = IntFunctionalMap.builder(0);
+        IntFunctionalMap.Builder direct = IntFunctionalMap.builder(0, Storage.direct());
+        for (int i = 0; i < 50000; i++) {
+            int key = i % 5 == 0 ? random.nextInt() : random.nextInt(1000) - 500;
+            int value = random.nextInt();
+            expected.put(key, value);
+            heap.put(key, value);
+            direct.put(key, value);
+        }
+        IntFunctionalMap heapMap = heap.build();
+        IntFunctionalMap directMap = direct.build();
+        assertEquals(expected.size(), heapMap.size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(OptionalInt.some(entry.getValue()), heapMap.getOptional(entry.getKey()));
+            assertEquals(entry.getValue().intValue(), directMap.getOrElse(entry.getKey(), 0));
+        }
+        assertEquals(heapMap, directMap);
+        assertEquals(IntFunctionalMap.copyOf(expected), directMap);
+    }
+
+    @Test
+    public void filterKeysKeepsZeroKey() {
+        IntFunctionalMap map = IntFunctionalMap.builder(3).put(0, 7).put(-1, 8).put(5, 9).build();
+        IntFunctionalMap nonNegative = map.filterKeys(new IntPredicate() {
+            @Override
+            public boolean apply(int input) {
+                return input >= 0;
+            }
+        });
+        assertEquals(2, nonNegative.size());
+        assertEquals(OptionalInt.some(7), nonNegative.getOptional(0));
+        assertEquals(OptionalInt.none(), nonNegative.getOptional(-1));
+        assertEquals(-1, nonNegative.getOrElse(-1, -1));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ListViewTest {
+    @Test
+    public void forceGivesSameResultAsEagerChain() {
+        FunctionalList<Integer> ints = FunctionalList.of(1, 2, 3, 4, 5, 6);
+        FunctionalList<String> eager = ints.filter(even()).map(Functions.<Integer>asString()).flatMap(twice());
+        FunctionalList<String> lazy = ints.view().filter(even()).map(Functions.<Integer>asString()).flatMap(twice()).force();
+        assertEquals(eager, lazy);
+        assertEquals(FunctionalList.of("2", "2", "4", "4", "6", "6"), lazy);
+    }
+
+    @Test
+    public void nothingIsEvaluatedUntilForced() {
+        AtomicInteger calls = new AtomicInteger();
+        ListView<Integer> view = FunctionalList.of(1, 2, 3).view().map(counting(calls));
+        assertEquals(0, calls.get());
+        view.force();
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void findStopsAtFirstMatch() {
+        AtomicInteger calls = new AtomicInteger();
+        Optional<Integer> found = FunctionalList.of(1, 2, 3, 4, 5, 6).view().map(counting(calls)).find(even());
+        assertEquals(Optional.some(2), found);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void shortCircuitingTerminals() {
+        AtomicInteger calls = new AtomicInteger();
+        ListView<Integer> view = FunctionalList.of(1, 2, 3, 4, 5, 6).view().map(counting(calls));
+
+        assertEquals(Optional.some(1), view.headOption());
+        assertEquals(1, calls.getAndSet(0));
+
+        assertTrue(view.exists(even()));
+        assertEquals(2, calls.getAndSet(0));
+
+        assertFalse(view.forall(even()));
+        assertEquals(1, calls.getAndSet(0));
+
+        assertEquals(Integer.valueOf(21), view.reduce(sum(), 0));
+        assertEquals(6, calls.get());
+    }
+
+    @Test
+    public void emptyView() {
+        ListView<Integer> view = FunctionalList.<Integer>empty().view().filter(even());
+        assertTrue(view.headOption().isNone());
+        assertTrue(view.forall(even()));
+        assertTrue(view.force().isEmpty());
+    }
+
+    private static Predicate<Integer> even() {
+        return new Predicate<Integer>() {
+            @Override
+            public boolean apply(Integer input) {
+                return input % 2 == 0;
+            }
+        };
+    }
+
+    private static Function<String, Iterable<String>> twice() {
+        return new Function<String, Iterable<String>>() {
+            @Override
+            public Iterable<String> apply(String input) {
+                return CollectionOps.of(input, input);
+            }
+        };
+    }
+
+    private static Function<Integer, Integer> counting(final AtomicInteger calls) {
+        return new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+                calls.incrementAndGet();
+                return input;
+            }
+        };
+    }
+
+    private static Union<Integer> sum() {
+        return new Union<Integer>() {
+            @Override
+            public Integer unite(Integer a, Integer b) {
+                return a + b;
+            }
+        };
+    }
+}
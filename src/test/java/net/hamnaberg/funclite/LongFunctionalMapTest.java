@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongFunctionalMapTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void getOrElseAndGetOptional() {
+        LongFunctionalMap map = LongFunctionalMap.builder(4).put(1, 10).put(0, 5).put(-7, 70).put(1, 11).build();
+        assertEquals(3, map.size());
+        assertEquals(11, map.getOrElse(1, -1));
+        assertEquals(5, map.getOrElse(0, -1));
+        assertEquals(-1, map.getOrElse(2, -1));
+        assertEquals(OptionalLong.some(70), map.getOptional(-7));
+        assertEquals(OptionalLong.none(), map.getOptional(3));
+        assertTrue(map.containsKey(0));
+        assertFalse(LongFunctionalMap.empty().containsKey(0));
+    }
+
+    @Test
+    public void allStoragesAgreeWithHashMap() throws Exception {
+        Map<Long, Long> expected = randomEntries(20000);
+        LongFunctionalMap heap = build(expected, LongFunctionalMap.builder(0));
+        LongFunctionalMap direct = build(expected, LongFunctionalMap.builder(expected.size(), Storage.direct()));
+        LongFunctionalMap mapped = build(expected, LongFunctionalMap.builder(expected.size(), Storage.mapped(folder.newFile("table"))));
+        for (LongFunctionalMap map : new LongFunctionalMap[]{heap, direct, mapped}) {
+            assertEquals(expected.size(), map.size());
+            for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+                assertEquals(entry.getValue().longValue(), map.getOrElse(entry.getKey(), Long.MIN_VALUE));
+            }
+            assertEquals(heap, map);
+            assertEquals(heap.hashCode(), map.hashCode());
+        }
+        assertEquals(heap, LongFunctionalMap.copyOf(expected));
+    }
+
+    @Test
+    public void filterKeysAndMapValues() throws Exception {
+        LongFunctionalMap map = LongFunctionalMap.builder(10, Storage.mapped(folder.newFile("table"))).put(0, 1).put(1, 2).put(2, 3).put(3, 4).build();
+        LongFunctionalMap even = map.filterKeys(new LongPredicate() {
+            @Override
+            public boolean apply(long input) {
+                return input % 2 == 0;
+            }
+        });
+        assertEquals(LongFunctionalMap.builder(2).put(0, 1).put(2, 3).build(), even);
+        long[] keys = even.keys().toArray();
+        Arrays.sort(keys);
+        assertArrayEquals(new long[]{0, 2}, keys);
+        LongFunctionalMap doubled = map.mapValues(new LongFunction() {
+            @Override
+            public long apply(long input) {
+                return input * 2;
+            }
+        });
+        assertEquals(8, doubled.getOrElse(3, 0));
+        assertEquals(2, doubled.getOrElse(0, 0));
+        assertEquals(4, doubled.size());
+    }
+
+    @Test
+    public void mappedTableDoesNotGrow() throws Exception {
+        File file = folder.newFile("table");
+        LongFunctionalMap.Builder builder = LongFunctionalMap.builder(3, Storage.mapped(file));
+        try {
+            for (int i = 1; i < 100; i++) {
+                builder.put(i, i);
+            }
+            fail("Expected the mapped table to fill up");
+        } catch (IllegalStateException e) {
+            assertTrue(builder.size() >= 3);
+        }
+        assertTrue(file.length() > 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void builderCannotBeReused() {
+        LongFunctionalMap.Builder builder = LongFunctionalMap.builder(1);
+        builder.build();
+        builder.put(1, 1);
+    }
+
+    private static LongFunctionalMap build(Map<Long, Long> entries, LongFunctionalMap.Builder builder) {
+        for (Map.Entry<Long, Long> entry : entries.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    private static Map<Long, Long> randomEntries(int count) {
+        Random random = new Random(42);
+        Map<Long, Long> map = new HashMap<Long, Long>();
+        map.put(0L, 42L);
+        for (int i = 0; i < count; i++) {
+            long key = i % 3 == 0 ? random.nextLong() : random.nextInt(count);
+            map.put(key, random.nextLong());
+        }
+        return map;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MappedListTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void fixedLengthRecords() throws Exception {
+        List<Long> values = new ArrayList<Long>();
+        for (long i = 0; i < 1000; i++) {
+            values.add(i * i - 500);
+        }
+        FunctionalList<Long> list = MappedList.write(folder.newFile("longs"), values, RecordCodecs.longs());
+        assertEquals(values, list);
+        assertEquals(Long.valueOf(-500), list.head());
+        assertEquals(Long.valueOf(999 * 999 - 500), list.get(999));
+        FunctionalList<Long> positive = list.filter(new Predicate<Long>() {
+            @Override
+            public boolean apply(Long input) {
+                return input > 0;
+            }
+        });
+        assertEquals(Long.valueOf(23 * 23 - 500), positive.head());
+        assertEquals(Optional.some(Long.valueOf(-499)), list.find(new Predicate<Long>() {
+            @Override
+            public boolean apply(Long input) {
+                return input == -499;
+            }
+        }));
+        assertEquals("-500", list.map(Functions.<Long>asString()).head());
+    }
+
+    @Test
+    public void variableLengthRecordsAcrossSegments() throws Exception {
+        List<String> values = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < i % 37; j++) {
+                sb.append(j % 5 == 0 ? '\u00e6' : 'a');
+            }
+            values.add(sb.append(i).toString());
+        }
+        values.add("");
+        File file = folder.newFile("strings");
+        MappedList.write(file, values, RecordCodecs.utf8());
+        FunctionalList<String> list = MappedList.open(file, RecordCodecs.utf8(), 6);
+        assertEquals(values.size(), list.size());
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(values.get(i), list.get(i));
+        }
+        assertEquals(values, CollectionOps.newArrayList(list));
+    }
+
+    @Test
+    public void sliceAndSubListAreViews() throws Exception {
+        FunctionalList<Integer> list = MappedList.write(folder.newFile("ints"), Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), RecordCodecs.ints());
+        FunctionalList<Integer> slice = list.slice(2, 8);
+        assertEquals(Arrays.asList(2, 3, 4, 5, 6, 7), slice);
+        assertEquals(Arrays.asList(4, 5), slice.subList(2, 4));
+        assertEquals(Arrays.asList(3, 4, 5, 6, 7), slice.tail());
+        assertEquals(Integer.valueOf(7), slice.get(5));
+        try {
+            slice.get(6);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        assertTrue(MappedList.write(folder.newFile("empty"), Collections.<String>emptyList(), RecordCodecs.utf8()).isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnly() throws Exception {
+        MappedList.write(folder.newFile("ints"), Arrays.asList(1, 2), RecordCodecs.ints()).add(3);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void codecMustMatchTheFile() throws Exception {
+        File file = folder.newFile("ints");
+        MappedList.write(file, Arrays.asList(1, 2), RecordCodecs.ints());
+        MappedList.open(file, RecordCodecs.longs());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void fixedLengthIsChecked() throws Exception {
+        MappedList.write(folder.newFile("bad"), Arrays.asList(1, 2), new RecordCodec<Integer>() {
+            @Override
+            public int fixedLength() {
+                return 8;
+            }
+
+            @Override
+            public void encode(Integer value, DataOutput out) throws IOException {
+                out.writeInt(value);
+            }
+
+            @Override
+            public Integer decode(ByteBuffer record) {
+                return record.getInt(record.position());
+            }
+        });
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MemoizedFunctionTest {
+    @Test
+    public void cachesResultsAndCountsHitsAndMisses() {
+        AtomicInteger calls = new AtomicInteger();
+        MemoizedFunction<Integer, Integer> f = Functions.memoize(square(calls));
+        assertEquals(Integer.valueOf(9), f.apply(3));
+        assertEquals(Integer.valueOf(9), f.apply(3));
+        assertEquals(Integer.valueOf(16), f.apply(4));
+        assertEquals(2, calls.get());
+        assertEquals(new CacheStats(1, 2, 0), f.stats());
+        assertEquals(2, f.size());
+    }
+
+    @Test
+    public void lruEvictsLeastRecentlyUsed() {
+        AtomicInteger calls = new AtomicInteger();
+        MemoizedFunction<Integer, Integer> f = Functions.memoize(square(calls), CacheSpec.<Integer>lru().withMaximumSize(2));
+        f.apply(1);
+        f.apply(2);
+        f.apply(1);
+        f.apply(3);
+        assertEquals(2, f.size());
+        assertEquals(1, f.stats().getEvictionCount());
+        f.apply(1);
+        assertEquals(3, calls.get());
+        f.apply(2);
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void tinyLfuKeepsFrequentKeysThroughAScan() {
+        AtomicInteger calls = new AtomicInteger();
+        MemoizedFunction<Integer, Integer> f = Functions.memoize(square(calls), CacheSpec.<Integer>tinyLfu().withMaximumSize(100));
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                f.apply(i);
+            }
+        }
+        for (int i = 1000; i < 11000; i++) {
+            f.apply(i);
+        }
+        assertTrue(f.size() <= 100);
+        calls.set(0);
+        for (int i = 0; i < 50; i++) {
+            f.apply(i);
+        }
+        assertTrue("reloaded " + calls.get() + " hot keys", calls.get() < 5);
+    }
+
+    @Test
+    public void lruLosesFrequentKeysThroughAScan() {
+        AtomicInteger calls = new AtomicInteger();
+        MemoizedFunction<Integer, Integer> f = Functions.memoize(square(calls), CacheSpec.<Integer>lru().withMaximumSize(100));
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                f.apply(i);
+            }
+        }
+        for (int i = 1000; i < 11000; i++) {
+            f.apply(i);
+        }
+        calls.set(0);
+        for (int i = 0; i < 50; i++) {
+            f.apply(i);
+        }
+        assertEquals(50, calls.get());
+    }
+
+    @Test
+    public void boundsTotalWeight() {
+        Function<String, String> id = Functions.identity();
+        MemoizedFunction<String, String> f = Functions.memoize(id, CacheSpec.<String>lru().withMaximumWeight(10, new Function<String, Integer>() {
+            @Override
+            public Integer apply(String input) {
+                return input.length();
+            }
+        }));
+        f.apply("aaaa");
+        f.apply("bbbb");
+        assertEquals(2, f.size());
+        f.apply("cccc");
+        assertEquals(2, f.size());
+        f.apply("dddddddddddd");
+        assertEquals(0, f.size());
+        assertEquals(4, f.stats().getEvictionCount());
+    }
+
+    @Test
+    public void expiresAfterWrite() {
+        AtomicInteger calls = new AtomicInteger();
+        ManualTicker ticker = new ManualTicker();
+        MemoizedFunction<Integer, Integer> f = Functions.memoize(square(calls), CacheSpec.<Integer>lru().withExpireAfterWrite(10, TimeUnit.SECONDS).withTicker(ticker));
+        f.apply(2);
+        ticker.advance(9, TimeUnit.SECONDS);
+        f.apply(2);
+        assertEquals(1, calls.get());
+        ticker.advance(1, TimeUnit.SECONDS);
+        f.apply(2);
+        assertEquals(2, calls.get());
+        assertEquals(new CacheStats(1, 2, 0), f.stats());
+    }
+
+    @Test
+    public void expiredEntriesAreDroppedOnWrite() {
+        ManualTicker ticker = new ManualTicker();
+        MemoizedFunction<Integer, Integer> f = Functions.memoize(square(new AtomicInteger()), CacheSpec.<Integer>lru().withExpireAfterWrite(1, TimeUnit.SECONDS).withTicker(ticker));
+        for (int i = 0; i < 10; i++) {
+            f.apply(i);
+        }
+        ticker.advance(1, TimeUnit.SECONDS);
+        f.apply(100);
+        assertEquals(1, f.size());
+    }
+
+    @Test
+    public void concurrentMissesComputeOnce() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final MemoizedFunction<Integer, Integer> f = Functions.memoize(new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+                calls.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return input * 2;
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return f.apply(21);
+                    }
+                }));
+            }
+            started.await();
+            Thread.sleep(50);
+            release.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(Integer.valueOf(42), result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, f.stats().getMissCount());
+        assertEquals(7, f.stats().getHitCount());
+    }
+
+    @Test
+    public void failuresAreNotCached() {
+        final AtomicInteger calls = new AtomicInteger();
+        MemoizedFunction<Integer, Integer> f = Functions.memoize(new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+                if (calls.incrementAndGet() == 1) {
+                    throw new IllegalArgumentException("first");
+                }
+                return input;
+            }
+        });
+        try {
+            f.apply(1);
+            fail("Expected the first call to fail");
+        } catch (IllegalArgumentException e) {
+            assertEquals("first", e.getMessage());
+        }
+        assertEquals(0, f.size());
+        assertEquals(Integer.valueOf(1), f.apply(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void recursiveLoadOfSameKeyFails() {
+        final MemoizedFunction<?, ?>[] self = new MemoizedFunction<?, ?>[1];
+        MemoizedFunction<Integer, Integer> f = Functions.memoize(new Function<Integer, Integer>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Integer apply(Integer input) {
+                return ((MemoizedFunction<Integer, Integer>) self[0]).apply(input);
+            }
+        });
+        self[0] = f;
+        f.apply(1);
+    }
+
+    @Test
+    public void invalidate() {
+        AtomicInteger calls = new AtomicInteger();
+        MemoizedFunction<Integer, Integer> f = Functions.memoize(square(calls), CacheSpec.<Integer>tinyLfu().withMaximumSize(10));
+        f.apply(1);
+        f.apply(2);
+        f.invalidate(1);
+        assertEquals(1, f.size());
+        f.apply(1);
+        assertEquals(3, calls.get());
+        f.invalidateAll();
+        assertEquals(0, f.size());
+    }
+
+    private static Function<Integer, Integer> square(final AtomicInteger calls) {
+        return new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+                calls.incrementAndGet();
+                return input * input;
+            }
+        };
+    }
+
+    static final class ManualTicker extends Ticker {
+        private volatile long nanos = 1;
+
+        @Override
+        long read() {
+            return nanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+}
@@ -58,4 +58,25 @@ public class OptionalTest {
         });
         assertEquals(some.get(), value.get());
     }
+
+    @Test
+    public void forallAndExists() {
+        Optional<Integer> some = Optional.some(2);
+        Optional<Integer> none = Optional.none();
+        assertTrue(some.exists(even()));
+        assertTrue(some.forall(even()));
+        assertFalse(Optional.some(3).exists(even()));
+        assertFalse(Optional.some(3).forall(even()));
+        assertFalse(none.exists(even()));
+        assertTrue(none.forall(even()));
+    }
+
+    private static Predicate<Integer> even() {
+        return new Predicate<Integer>() {
+            @Override
+            public boolean apply(Integer input) {
+                return input % 2 == 0;
+            }
+        };
+    }
 }
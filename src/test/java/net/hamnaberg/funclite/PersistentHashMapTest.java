@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PersistentHashMapTest {
+    @Test
+    public void behavesLikeHashMap() {
+        Random random = new Random(1);
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            Integer key = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.removed(key);
+            }
+            else {
+                expected.put(key, i);
+                map = map.updated(key, i);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        for (Integer key : expected.keySet()) {
+            map = map.removed(key);
+        }
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.entrySet().size());
+    }
+
+    @Test
+    public void updatesLeaveTheOriginalUntouched() {
+        PersistentHashMap<String, Integer> original = PersistentHashMap.copyOf(MapOps.newHashMap("a", 1, "b", 2));
+        PersistentHashMap<String, Integer> updated = original.updated("a", 10).updated("c", 3).removed("b");
+
+        assertEquals(MapOps.newHashMap("a", 1, "b", 2), original);
+        assertEquals(MapOps.newHashMap("a", 10, "c", 3), updated);
+        assertSame(original, original.removed("missing"));
+    }
+
+    @Test
+    public void collidingHashes() {
+        PersistentHashMap<Colliding, String> map = PersistentHashMap.empty();
+        for (int i = 0; i < 10; i++) {
+            map = map.updated(new Colliding(i), "v" + i);
+        }
+        assertEquals(10, map.size());
+        assertEquals("v7", map.get(new Colliding(7)));
+        for (int i = 0; i < 9; i++) {
+            map = map.removed(new Colliding(i));
+        }
+        assertEquals(1, map.size());
+        assertEquals("v9", map.get(new Colliding(9)));
+        assertNull(map.get(new Colliding(1)));
+    }
+
+    @Test
+    public void nullKeyAndValue() {
+        PersistentHashMap<String, String> map = PersistentHashMap.<String, String>empty().updated(null, "x").updated("y", null);
+        assertEquals("x", map.get(null));
+        assertTrue(map.containsKey("y"));
+        assertNull(map.get("y"));
+        assertEquals(1, map.removed(null).size());
+    }
+
+    @Test
+    public void mergeWithUnion() {
+        PersistentHashMap<String, Integer> left = PersistentHashMap.copyOf(MapOps.newHashMap("a", 1, "b", 2));
+        Map<String, Integer> right = MapOps.newHashMap("b", 3, "c", 4);
+        PersistentHashMap<String, Integer> merged = left.merge(right, new Union<Integer>() {
+            @Override
+            public Integer unite(Integer a, Integer b) {
+                return a + b;
+            }
+        });
+        assertEquals(MapOps.newHashMap("a", 1, "b", 5, "c", 4), merged);
+        assertEquals(MapOps.newHashMap("a", 1, "b", 3, "c", 4), left.merge(right));
+    }
+
+    private static final class Colliding {
+        private final int id;
+
+        Colliding(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Colliding && ((Colliding) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PersistentVectorTest {
+    @Test
+    public void appendAndPrepend() {
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        LinkedList<Integer> expected = new LinkedList<Integer>();
+        for (int i = 0; i < 50000; i++) {
+            if (i % 3 == 0) {
+                vector = vector.prepend(i);
+                expected.addFirst(i);
+            }
+            else {
+                vector = vector.append(i);
+                expected.addLast(i);
+            }
+        }
+        assertEquals(expected, vector);
+        assertEquals(new ArrayList<Integer>(expected), new ArrayList<Integer>(vector));
+        assertEquals(expected.get(12345), vector.get(12345));
+    }
+
+    @Test
+    public void updatesShareStructureWithoutChangingTheOriginal() {
+        PersistentVector<String> original = PersistentVector.copyOf(CollectionOps.of("a", "b", "c"));
+        PersistentVector<String> updated = original.updated(1, "x");
+        PersistentVector<String> appended = original.append("d");
+
+        assertEquals(CollectionOps.of("a", "b", "c"), original);
+        assertEquals(CollectionOps.of("a", "x", "c"), updated);
+        assertEquals(CollectionOps.of("a", "b", "c", "d"), appended);
+    }
+
+    @Test
+    public void tailAndSlice() {
+        List<Integer> expected = range(0, 1000);
+        PersistentVector<Integer> vector = PersistentVector.copyOf(expected);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(expected.subList(i, 1000), vector);
+            vector = vector.tail();
+        }
+        assertTrue(vector.isEmpty());
+        assertSame(vector, vector.tail());
+        assertEquals(range(100, 200), PersistentVector.copyOf(expected).slice(100, 200));
+    }
+
+    @Test
+    public void queueUsageStaysCorrect() {
+        PersistentVector<Integer> queue = PersistentVector.empty();
+        for (int i = 0; i < 100000; i++) {
+            queue = queue.append(i);
+            if (queue.size() > 10) {
+                assertEquals(Integer.valueOf(i - 10), queue.get(0));
+                queue = queue.tail();
+            }
+        }
+        assertEquals(range(99990, 100000), queue);
+    }
+
+    @Test
+    public void concat() {
+        PersistentVector<Integer> small = PersistentVector.copyOf(range(0, 10));
+        PersistentVector<Integer> large = PersistentVector.copyOf(range(10, 2000));
+        assertEquals(range(0, 2000), small.concat(large));
+        assertEquals(range(0, 2000), PersistentVector.copyOf(range(0, 1990)).concat(PersistentVector.copyOf(range(1990, 2000))));
+        assertSame(small, small.concat(PersistentVector.<Integer>empty()));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutsideWindowFails() {
+        PersistentVector.of(1, 2, 3).tail().get(2);
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> list = CollectionOps.newArrayList();
+        for (int i = from; i < to; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+}
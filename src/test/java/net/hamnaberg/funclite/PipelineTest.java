@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PipelineTest {
+    private static final Function<Integer, Integer> INCREMENT = new Function<Integer, Integer>() {
+        @Override
+        public Integer apply(Integer input) {
+            return input + 1;
+        }
+    };
+
+    private static final Function<Integer, Integer> DOUBLE = new Function<Integer, Integer>() {
+        @Override
+        public Integer apply(Integer input) {
+            return input * 2;
+        }
+    };
+
+    @Test
+    public void appliesStepsInOrder() {
+        Pipeline<Integer, String> pipeline = Pipeline.of(INCREMENT).then(DOUBLE).then(Functions.<Integer>asString());
+        assertEquals("8", pipeline.apply(3));
+        assertEquals(3, pipeline.size());
+    }
+
+    @Test
+    public void identityStepsAreDropped() {
+        Pipeline<Integer, Integer> pipeline = Pipeline.of(Functions.<Integer>identity()).then(INCREMENT).then(Functions.<Integer>identity());
+        assertEquals(1, pipeline.size());
+        assertEquals(Integer.valueOf(2), pipeline.apply(1));
+        assertEquals(0, Pipeline.<Integer>start().then(Functions.<Integer>identity()).size());
+        assertEquals(Integer.valueOf(5), Pipeline.<Integer>start().apply(5));
+    }
+
+    @Test
+    public void nestedPipelinesAreFlattened() {
+        Pipeline<Integer, Integer> inner = Pipeline.of(INCREMENT).then(DOUBLE);
+        Pipeline<Integer, Integer> outer = Pipeline.of(DOUBLE).then(inner).then(inner);
+        assertEquals(5, outer.size());
+        assertEquals(Integer.valueOf(((3 * 2 + 1) * 2 + 1) * 2), outer.apply(3));
+        assertSame(inner, Pipeline.<Integer>start().then(inner));
+    }
+
+    @Test
+    public void composeChainsStayFlat() {
+        Function<Integer, Integer> f = INCREMENT;
+        for (int i = 0; i < 14; i++) {
+            f = Functions.compose(f, i % 2 == 0 ? DOUBLE : Functions.<Integer>identity());
+        }
+        assertTrue(f instanceof Pipeline);
+        assertEquals(8, ((Pipeline<Integer, Integer>) f).size());
+        assertEquals(Integer.valueOf(128), f.apply(0));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PredicatesTest {
+    private static final Predicate<Integer> POSITIVE = Predicates.positive();
+
+    @Test
+    public void nestedAndIsFlattened() {
+        Predicate<Integer> p = Predicates.and(Predicates.and(POSITIVE, lessThan(10)), Predicates.and(even(), lessThan(8)));
+        assertTrue(p instanceof Predicates.AllOf);
+        assertEquals(4, ((Predicates.AllOf<Integer>) p).clauses.length);
+        assertTrue(p.apply(6));
+        assertFalse(p.apply(8));
+        assertFalse(p.apply(-2));
+        assertFalse(p.apply(3));
+    }
+
+    @Test
+    public void nestedOrIsFlattened() {
+        Predicate<Integer> p = Predicates.anyOf(Predicates.or(even(), lessThan(0)), Predicates.anyOf(lessThan(-10), POSITIVE));
+        assertTrue(p instanceof Predicates.AnyOf);
+        assertEquals(4, ((Predicates.AnyOf<Integer>) p).clauses.length);
+        assertTrue(p.apply(3));
+        assertTrue(p.apply(0));
+        assertFalse(Predicates.or(even(), lessThan(0)).apply(3));
+    }
+
+    @Test
+    public void constantsAreFoldedAway() {
+        assertSame(POSITIVE, Predicates.allOf(Predicates.<Integer>alwaysTrue(), POSITIVE));
+        assertSame(Predicates.FALSE, Predicates.allOf(POSITIVE, Predicates.<Integer>alwaysFalse()));
+        assertSame(Predicates.TRUE, Predicates.allOf(Collections.<Predicate<Integer>>emptyList()));
+        assertSame(POSITIVE, Predicates.anyOf(Predicates.<Integer>alwaysFalse(), POSITIVE));
+        assertSame(Predicates.TRUE, Predicates.anyOf(POSITIVE, Predicates.<Integer>alwaysTrue()));
+        assertSame(Predicates.FALSE, Predicates.anyOf(Collections.<Predicate<Integer>>emptyList()));
+    }
+
+    @Test
+    public void mixedTreesKeepTheirMeaning() {
+        Predicate<Integer> p = Predicates.allOf(Predicates.anyOf(even(), lessThan(0)), Predicates.not(lessThan(-5)));
+        for (int i = -10; i <= 10; i++) {
+            boolean expected = (i % 2 == 0 || i < 0) && i >= -5;
+            assertEquals(String.valueOf(i), expected, p.apply(i));
+        }
+    }
+
+    @Test
+    public void adaptiveMovesCheapSelectiveClausesFirst() {
+        AtomicInteger expensiveCalls = new AtomicInteger();
+        Predicate<Integer> expensive = expensive(expensiveCalls);
+        Predicate<Integer> selective = lessThan(10);
+        Predicates.Adaptive<Integer> p = (Predicates.Adaptive<Integer>) Predicates.adaptive(Predicates.allOf(expensive, selective));
+
+        for (int i = 0; i < 200000; i++) {
+            assertEquals(i % 100 < 10, p.apply(i % 100));
+        }
+        assertEquals(2, p.currentOrder().size());
+        assertSame(selective, p.currentOrder().get(0));
+        expensiveCalls.set(0);
+        for (int i = 0; i < 10000; i++) {
+            p.apply(i % 100);
+        }
+        assertTrue("expensive clause ran " + expensiveCalls.get() + " times", expensiveCalls.get() < 2000);
+    }
+
+    @Test
+    public void adaptiveAnyOfKeepsItsResults() {
+        AtomicInteger expensiveCalls = new AtomicInteger();
+        Predicate<Integer> p = Predicates.adaptive(Predicates.anyOf(Predicates.not(expensive(expensiveCalls)), even(), lessThan(0)));
+        for (int i = -5000; i < 5000; i++) {
+            assertEquals(i % 2 == 0 || i < 0, p.apply(i));
+        }
+        assertSame(POSITIVE, Predicates.adaptive(POSITIVE));
+    }
+
+    @Test
+    public void adaptiveSamplesStopAtTheDecidingClause() {
+        Predicate<String> notNull = new Predicate<String>() {
+            @Override
+            public boolean apply(String input) {
+                return input != null;
+            }
+        };
+        Predicate<String> notEmpty = new Predicate<String>() {
+            @Override
+            public boolean apply(String input) {
+                return !input.isEmpty();
+            }
+        };
+        Predicate<String> p = Predicates.adaptive(Predicates.allOf(notNull, notEmpty));
+        for (int i = 0; i < 200000; i++) {
+            assertFalse(p.apply(null));
+        }
+        assertTrue(p.apply("a"));
+    }
+
+    private static Predicate<Integer> even() {
+        return new Predicate<Integer>() {
+            @Override
+            public boolean apply(Integer input) {
+                return input % 2 == 0;
+            }
+        };
+    }
+
+    private static Predicate<Integer> lessThan(final int limit) {
+        return new Predicate<Integer>() {
+            @Override
+            public boolean apply(Integer input) {
+                return input < limit;
+            }
+        };
+    }
+
+    /** always true, but slow */
+    private static Predicate<Integer> expensive(final AtomicInteger calls) {
+        return new Predicate<Integer>() {
+            @Override
+            public boolean apply(Integer input) {
+                calls.incrementAndGet();
+                int hash = input;
+                for (int i = 0; i < 2000; i++) {
+                    hash = hash * 31 + i;
+                }
+                return hash != 1 || input >= Integer.MIN_VALUE;
+            }
+        };
+    }
+}
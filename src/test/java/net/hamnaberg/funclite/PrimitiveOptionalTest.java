@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveOptionalTest {
+    @Test
+    public void optionalInt() {
+        OptionalInt some = OptionalInt.some(21);
+        assertTrue(some.isSome());
+        assertEquals(42, some.map(twice()).get());
+        assertEquals(OptionalInt.none(), some.filter(even()));
+        assertEquals(some, some.map(twice()).filter(even()).map(half()));
+        assertTrue(some.map(twice()).exists(even()));
+        assertTrue(OptionalInt.none().forall(even()));
+        assertEquals(7, OptionalInt.none().getOrElse(7));
+        assertEquals(Optional.some(21), some.boxed());
+        assertEquals(some, OptionalInt.fromOptional(Optional.some(21)));
+        assertEquals(OptionalInt.some(100000), OptionalInt.some(100000));
+        assertEquals("Some{21}", some.toString());
+        assertEquals("None", OptionalInt.none().toString());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getFromNone() {
+        OptionalLong.none().get();
+    }
+
+    @Test
+    public void optionalLongAndDouble() {
+        assertEquals(OptionalLong.some(1L << 40), OptionalLong.some(1L << 40));
+        assertEquals(Optional.some(5L), OptionalLong.some(5).boxed());
+        assertTrue(OptionalLong.none().boxed().isNone());
+        assertEquals(OptionalDouble.some(Double.NaN), OptionalDouble.some(Double.NaN));
+        assertEquals(OptionalDouble.some(0.5).hashCode(), OptionalDouble.some(0.5).hashCode());
+        assertEquals(0.5, OptionalDouble.none().getOrElse(0.5), 0);
+    }
+
+    @Test
+    public void primitiveListsReturnPrimitiveOptionals() {
+        IntFunctionalList ints = IntFunctionalList.of(1, 3, 4, 5);
+        assertEquals(OptionalInt.some(1), ints.headOption());
+        assertEquals(OptionalInt.some(4), ints.find(even()));
+        assertTrue(IntFunctionalList.empty().headOption().isNone());
+        assertEquals(OptionalDouble.some(2.5), DoubleFunctionalList.of(1.0, 2.5).find(new DoublePredicate() {
+            @Override
+            public boolean apply(double value) {
+                return value > 2;
+            }
+        }));
+    }
+
+    private static IntFunction twice() {
+        return new IntFunction() {
+            @Override
+            public int apply(int value) {
+                return value * 2;
+            }
+        };
+    }
+
+    private static IntFunction half() {
+        return new IntFunction() {
+            @Override
+            public int apply(int value) {
+                return value / 2;
+            }
+        };
+    }
+
+    private static IntPredicate even() {
+        return new IntPredicate() {
+            @Override
+            public boolean apply(int value) {
+                return value % 2 == 0;
+            }
+        };
+    }
+}
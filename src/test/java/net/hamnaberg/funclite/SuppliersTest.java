@@ -0,0 +1,193 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SuppliersTest {
+    @Test
+    public void memoizeCallsOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<Integer> supplier = Suppliers.memoize(counting(calls));
+        assertEquals(Integer.valueOf(1), supplier.get());
+        assertEquals(Integer.valueOf(1), supplier.get());
+        assertEquals(1, calls.get());
+        assertSame(supplier, Suppliers.memoize(supplier));
+    }
+
+    @Test
+    public void memoizeRemembersNull() {
+        final AtomicInteger calls = new AtomicInteger();
+        Supplier<String> supplier = Suppliers.memoize(new Supplier<String>() {
+            @Override
+            public String get() {
+                calls.incrementAndGet();
+                return null;
+            }
+        });
+        assertNull(supplier.get());
+        assertNull(supplier.get());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void memoizeIsThreadSafe() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final Supplier<Integer> supplier = Suppliers.memoize(new Supplier<Integer>() {
+            @Override
+            public Integer get() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return calls.incrementAndGet();
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return supplier.get();
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(Integer.valueOf(1), result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void expiringSupplierReloadsAfterDuration() {
+        AtomicInteger calls = new AtomicInteger();
+        MemoizedFunctionTest.ManualTicker ticker = new MemoizedFunctionTest.ManualTicker();
+        Supplier<Integer> supplier = Suppliers.memoizeWithExpiration(counting(calls), 10, TimeUnit.SECONDS, null, ticker);
+        assertEquals(Integer.valueOf(1), supplier.get());
+        ticker.advance(9, TimeUnit.SECONDS);
+        assertEquals(Integer.valueOf(1), supplier.get());
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertEquals(Integer.valueOf(2), supplier.get());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void refreshAheadReturnsCurrentValueWhileReloading() {
+        AtomicInteger calls = new AtomicInteger();
+        MemoizedFunctionTest.ManualTicker ticker = new MemoizedFunctionTest.ManualTicker();
+        QueueingExecutor refresher = new QueueingExecutor();
+        Supplier<Integer> supplier = Suppliers.memoizeWithExpiration(counting(calls), 8, TimeUnit.SECONDS, refresher, ticker);
+        assertEquals(Integer.valueOf(1), supplier.get());
+
+        ticker.advance(5, TimeUnit.SECONDS);
+        assertEquals(Integer.valueOf(1), supplier.get());
+        assertEquals(0, refresher.tasks.size());
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertEquals(Integer.valueOf(1), supplier.get());
+        assertEquals(Integer.valueOf(1), supplier.get());
+        assertEquals("only one reload is started", 1, refresher.tasks.size());
+        assertEquals(1, calls.get());
+
+        refresher.runAll();
+        assertEquals(Integer.valueOf(2), supplier.get());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void failedRefreshKeepsValueUntilExpiry() {
+        final AtomicInteger calls = new AtomicInteger();
+        MemoizedFunctionTest.ManualTicker ticker = new MemoizedFunctionTest.ManualTicker();
+        QueueingExecutor refresher = new QueueingExecutor();
+        Supplier<Integer> supplier = Suppliers.memoizeWithExpiration(new Supplier<Integer>() {
+            @Override
+            public Integer get() {
+                int call = calls.incrementAndGet();
+                if (call == 2) {
+                    throw new IllegalStateException("refresh failed");
+                }
+                return call;
+            }
+        }, 8, TimeUnit.SECONDS, refresher, ticker);
+        assertEquals(Integer.valueOf(1), supplier.get());
+        ticker.advance(6, TimeUnit.SECONDS);
+        assertEquals(Integer.valueOf(1), supplier.get());
+        refresher.runAll();
+        assertEquals(Integer.valueOf(1), supplier.get());
+        assertEquals("retry waits for half the remaining time", 0, refresher.tasks.size());
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertEquals(Integer.valueOf(1), supplier.get());
+        assertEquals(1, refresher.tasks.size());
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertEquals("expired values are reloaded in the caller", Integer.valueOf(3), supplier.get());
+    }
+
+    @Test
+    public void compose() {
+        Supplier<String> supplier = Suppliers.compose(Suppliers.ofInstance(21), new Function<Integer, String>() {
+            @Override
+            public String apply(Integer input) {
+                return String.valueOf(input * 2);
+            }
+        });
+        assertEquals("42", supplier.get());
+    }
+
+    private static Supplier<Integer> counting(final AtomicInteger calls) {
+        return new Supplier<Integer>() {
+            @Override
+            public Integer get() {
+                return calls.incrementAndGet();
+            }
+        };
+    }
+
+    private static final class QueueingExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            List<Runnable> pending = new ArrayList<Runnable>(tasks);
+            tasks.clear();
+            for (Runnable task : pending) {
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2013 Erlend Hamnaberg
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.hamnaberg.funclite;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TokenizerTest {
+    private static final List<String> SEPARATORS = CollectionOps.of(",", "::", "\\|", ".", "\\s*,\\s*", "a", "", "x*");
+
+    @Test
+    public void sameTokensAsStringSplit() {
+        Random random = new Random(5);
+        String alphabet = ",:|. ax";
+        for (String separator : SEPARATORS) {
+            for (int i = 0; i < 500; i++) {
+                StringBuilder input = new StringBuilder();
+                int length = random.nextInt(12);
+                for (int j = 0; j < length; j++) {
+                    input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+                String s = input.toString();
+                assertEquals("split of '" + s + "' on '" + separator + "'",
+                        Arrays.asList(s.split(separator)), CollectionOps.newArrayList(Tokenizer.on(separator).split(s)));
+            }
+        }
+    }
+
+    @Test
+    public void trimAndLimit() {
+        Iterable<String> tokens = Tokenizer.on(",").trimResults().limit(2).split(" a , b ,c");
+        assertEquals(CollectionOps.of("a", "b"), CollectionOps.newArrayList(tokens));
+        assertEquals(CollectionOps.of("1", "2", "3"), CollectionOps.newArrayList(CollectionOps.split(" 1, 2 ,3 ,,", ",")));
+    }
+
+    @Test
+    public void cursorGivesOffsetsWithoutCopying() {
+        String input = "key=value;other=thing;";
+        Tokenizer.Cursor cursor = Tokenizer.onLiteral(";").cursor(input);
+
+        assertTrue(cursor.next());
+        assertEquals(0, cursor.start());
+        assertEquals(9, cursor.end());
+        assertTrue(cursor.contentEquals("key=value"));
+        assertEquals('v', cursor.charAt(4));
+
+        assertTrue(cursor.next());
+        assertEquals("other=thing", cursor.toString());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void worksOnAnyCharSequence() {
+        StringBuilder input = new StringBuilder("a--b----c");
+        assertEquals(CollectionOps.of("a", "b", "", "c"), CollectionOps.newArrayList(Tokenizer.on("--").split(input)));
+    }
+}